@@ -0,0 +1,115 @@
+package co.edu.uptc.trafficlight.bench;
+
+import co.edu.uptc.trafficlight.business.Corridor;
+import co.edu.uptc.trafficlight.business.GreenWaveOptimizer;
+import co.edu.uptc.trafficlight.business.SimulationClock;
+import co.edu.uptc.trafficlight.business.TrafficController;
+import co.edu.uptc.trafficlight.model.SignalPhase;
+import co.edu.uptc.trafficlight.model.SignalPlan;
+import co.edu.uptc.trafficlight.model.TrafficLightState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compara un corredor con desfases optimizados contra el mismo corredor sin coordinar
+ * (paradas, tiempo de viaje y banda verde por sentido) para varias demandas. Después
+ * corre el corredor en vivo, con emergencias que disparan preemptions, y mide qué
+ * fracción del tiempo el acceso EAST de cada intersección muestra el estado que le
+ * corresponde según epoch + offset: si un ciclo atrasado no se recuperara, los
+ * desfases quedarían corridos y esa fracción caería.
+ *
+ *   java -cp target/classes co.edu.uptc.trafficlight.bench.CorridorComparison [intersecciones] [minutos en vivo]
+ */
+public class CorridorComparison {
+    private static final double SPACING_M = 200;
+    private static final double SPEED_MPS = 12;
+    private static final double[] DEMANDS_VEH_PER_HOUR = {200, 400, 600, 800};
+    private static final int RESTARTS = 8;
+    private static final long SEED = 29;
+
+    private static final double TIME_SCALE = 20;
+    private static final long SAMPLE_PERIOD_MS = 100;
+
+    public static void main(String[] args) throws InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        long liveMs = (args.length > 1 ? Long.parseLong(args[1]) : 10) * 60_000;
+
+        SimulationClock clock = new SimulationClock();
+        List<TrafficController> intersections = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            TrafficController controller = new TrafficController(clock);
+            controller.setRandomSeed(SEED + i);
+            controller.setVerbose(false);
+            intersections.add(controller);
+        }
+        double[] spacings = new double[size - 1];
+        Arrays.fill(spacings, SPACING_M);
+        Corridor corridor = new Corridor(intersections, spacings, SPEED_MPS);
+
+        System.out.printf("Corredor de %d intersecciones, %.0fm entre ellas, %.0f m/s%n", size, SPACING_M, SPEED_MPS);
+        System.out.printf("%8s %-14s %10s %9s %11s %14s%n", "veh/h", "", "paradas", "viaje", "banda ida", "banda vuelta");
+        GreenWaveOptimizer.Result result = null;
+        for (double demand : DEMANDS_VEH_PER_HOUR) {
+            result = corridor.optimize(demand, RESTARTS, SEED);
+            print(demand, "coordinado", result.getCoordinated());
+            print(demand, "no coordinado", result.getUncoordinated());
+        }
+        System.out.println("Desfases usados en vivo (ms): " + Arrays.toString(result.getOffsets()));
+
+        clock.setTimeScale(TIME_SCALE);
+        long[] matching = new long[size];
+        long samples = 0;
+        try {
+            corridor.start();
+            long end = clock.now() + liveMs;
+            while (clock.now() < end) {
+                clock.sleep(SAMPLE_PERIOD_MS);
+                long now = clock.now();
+                samples++;
+                for (int i = 0; i < size; i++) {
+                    TrafficController controller = intersections.get(i);
+                    TrafficLightState actual = controller.getTrafficLights().get("EAST").getCurrentState();
+                    if (actual == nominalState(controller, "EAST", now)) matching[i]++;
+                }
+            }
+        } finally {
+            corridor.stop();
+        }
+
+        int preemptions = 0;
+        for (TrafficController controller : intersections) {
+            preemptions += controller.getPreemptionCount();
+            controller.shutdown();
+        }
+        System.out.printf("En vivo: %.0f min simulados, %d preemptions%n", liveMs / 60_000.0, preemptions);
+        for (int i = 0; i < size; i++) {
+            System.out.printf("  intersección %d: EAST según el plan coordinado el %.1f%% del tiempo%n",
+                    i, matching[i] * 100.0 / samples);
+        }
+    }
+
+    /** Estado que el plan asigna al acceso en el instante dado según epoch + offset. */
+    private static TrafficLightState nominalState(TrafficController controller, String direction, long now) {
+        SignalPlan plan = controller.getSignalPlan();
+        long position = Math.floorMod(now - controller.getCycleEpochMs() - controller.getCycleOffsetMs(),
+                plan.getCycleLengthMs());
+        for (SignalPhase phase : plan.getPhases()) {
+            if (position < phase.getDurationMs()) {
+                if (!phase.serves(direction) || position >= phase.getGreenMs() + phase.getYellowMs()) {
+                    return TrafficLightState.RED;
+                }
+                return position < phase.getGreenMs() ? TrafficLightState.GREEN : TrafficLightState.YELLOW;
+            }
+            position -= phase.getDurationMs();
+        }
+        return TrafficLightState.RED;
+    }
+
+    private static void print(double demand, String label, GreenWaveOptimizer.Metrics metrics) {
+        System.out.printf("%8.0f %-14s %10.2f %8.1fs %10.1fs %13.1fs%n", demand, label, metrics.getAverageStops(),
+                metrics.getAverageTravelTimeS(), metrics.getOutboundBandwidthMs() / 1000,
+                metrics.getInboundBandwidthMs() / 1000);
+    }
+}
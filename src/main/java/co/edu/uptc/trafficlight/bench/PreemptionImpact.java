@@ -0,0 +1,78 @@
+package co.edu.uptc.trafficlight.bench;
+
+import co.edu.uptc.trafficlight.business.SimulationClock;
+import co.edu.uptc.trafficlight.business.TrafficController;
+import co.edu.uptc.trafficlight.business.WaitStatistics;
+import co.edu.uptc.trafficlight.model.DemandProfile;
+import co.edu.uptc.trafficlight.model.Vehicle;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Compara la espera por clase de prioridad con y sin preemption sobre la misma demanda
+ * (misma semilla) a carga ligera, saturada y sobresaturada. Muestra cuánto gana el
+ * tráfico prioritario y cuánto le cuesta al normal.
+ *
+ *   java -cp target/classes co.edu.uptc.trafficlight.bench.PreemptionImpact [minutos simulados]
+ */
+public class PreemptionImpact {
+    private static final double TIME_SCALE = 20;
+    private static final long WARMUP_MS = 30_000;
+
+    private static final String[] LOADS = {"light", "saturated", "oversaturated"};
+    private static final DemandProfile[] DEMANDS = {
+            DemandProfile.uniform(3, 0.6, 0.2),
+            DemandProfile.uniform(10, 0.6, 0.2),
+            DemandProfile.uniform(16, 0.6, 0.2),
+    };
+
+    public static void main(String[] args) throws InterruptedException {
+        long measureMs = (args.length > 0 ? Long.parseLong(args[0]) : 10) * 60_000;
+
+        System.out.printf("%-14s %-10s %-9s %8s %12s %12s%n", "carga", "preemption", "clase", "cruces", "espera prom", "espera máx");
+        for (int i = 0; i < LOADS.length; i++) {
+            Map<Vehicle.PriorityClass, double[]> off = run(DEMANDS[i], i + 1, false, measureMs);
+            Map<Vehicle.PriorityClass, double[]> on = run(DEMANDS[i], i + 1, true, measureMs);
+            print(LOADS[i], "off", off);
+            print(LOADS[i], "on", on);
+            double normalOff = off.get(Vehicle.PriorityClass.NORMAL)[1];
+            double normalOn = on.get(Vehicle.PriorityClass.NORMAL)[1];
+            System.out.printf("%-14s costo para NORMAL: %+.0fms de espera promedio (%+.1f%%)%n%n", LOADS[i],
+                    normalOn - normalOff, normalOff == 0 ? 0 : (normalOn - normalOff) * 100 / normalOff);
+        }
+    }
+
+    /** Por clase: {cruces, espera promedio ms, espera máxima ms} durante la ventana medida. */
+    private static Map<Vehicle.PriorityClass, double[]> run(DemandProfile demand, long seed, boolean preemption,
+                                                           long measureMs) throws InterruptedException {
+        TrafficController controller = new TrafficController();
+        controller.setTimeScale(TIME_SCALE);
+        controller.setRandomSeed(seed);
+        controller.setDemandProfile(demand);
+        controller.setPreemptionEnabled(preemption);
+        controller.setVerbose(false);
+        SimulationClock clock = controller.getClock();
+
+        controller.startSimulation();
+        clock.sleep(WARMUP_MS);
+        for (Vehicle.PriorityClass pc : Vehicle.PriorityClass.values()) controller.getWaitStatistics(pc).reset();
+        clock.sleep(measureMs);
+
+        Map<Vehicle.PriorityClass, double[]> waits = new EnumMap<>(Vehicle.PriorityClass.class);
+        for (Vehicle.PriorityClass pc : Vehicle.PriorityClass.values()) {
+            WaitStatistics stats = controller.getWaitStatistics(pc);
+            waits.put(pc, new double[]{stats.getCount(), stats.getAverageMs(), stats.getMaxMs()});
+        }
+        controller.shutdown();
+        return waits;
+    }
+
+    private static void print(String load, String preemption, Map<Vehicle.PriorityClass, double[]> waits) {
+        for (Map.Entry<Vehicle.PriorityClass, double[]> entry : waits.entrySet()) {
+            double[] w = entry.getValue();
+            System.out.printf("%-14s %-10s %-9s %8.0f %10.0fms %10.0fms%n",
+                    load, preemption, entry.getKey(), w[0], w[1], w[2]);
+        }
+    }
+}
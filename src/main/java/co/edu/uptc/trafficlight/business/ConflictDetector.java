@@ -0,0 +1,152 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.NearMissEvent;
+import co.edu.uptc.trafficlight.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Detector geométrico de casi-colisiones dentro de la caja de la intersección
+ * (x 350-450, y 300-400). En cada tick cada vehículo barre el segmento entre su posición
+ * anterior y la actual; los segmentos se insertan en una grilla uniforme y sólo se comparan
+ * pares que comparten celda, así que el costo por tick es O(n) para densidades normales.
+ * Un par se reporta una vez mientras siga cerca y sólo si el punto de mayor acercamiento
+ * cae dentro de la caja. Se comparan todos los pares, también los de un mismo acceso: los
+ * carriles vecinos van separados más que {@code NEAR_MISS_DISTANCE} hasta la línea de
+ * entrada, y desde ahí cada trayectoria sale de su propio carril.
+ */
+public class ConflictDetector {
+    public static final double MIN_X = 350, MAX_X = 450, MIN_Y = 300, MAX_Y = 400;
+    public static final double NEAR_MISS_DISTANCE = 15;
+
+    private static final double CELL_SIZE = 20;
+    private static final int COLUMNS = (int) Math.ceil((MAX_X - MIN_X) / CELL_SIZE);
+    private static final int ROWS = (int) Math.ceil((MAX_Y - MIN_Y) / CELL_SIZE);
+
+    private final int[][] cells = new int[COLUMNS * ROWS][4];
+    private final int[] cellCounts = new int[COLUMNS * ROWS];
+
+    private Map<Integer, double[]> lastPositions = new HashMap<>();
+    private Set<Long> activePairs = new HashSet<>();
+
+    private Vehicle[] tracked = new Vehicle[16];
+    private double[] fromX = new double[16], fromY = new double[16], toX = new double[16], toY = new double[16];
+    private int[] minCol = new int[16], maxCol = new int[16], minRow = new int[16], maxRow = new int[16];
+
+    /** Procesa un tick y devuelve las casi-colisiones nuevas. */
+    public List<NearMissEvent> detect(List<Vehicle> vehicles, long timestamp) {
+        Map<Integer, double[]> positions = new HashMap<>(vehicles.size() * 2);
+        Arrays.fill(cellCounts, 0);
+        int n = 0;
+
+        for (Vehicle v : vehicles) {
+            double x = v.getX(), y = v.getY();
+            positions.put(v.getId(), new double[]{x, y});
+            if (v.getState() == Vehicle.VehicleState.WAITING) continue;
+
+            double[] last = lastPositions.get(v.getId());
+            double px = last != null ? last[0] : x;
+            double py = last != null ? last[1] : y;
+
+            double loX = Math.min(px, x) - NEAR_MISS_DISTANCE, hiX = Math.max(px, x) + NEAR_MISS_DISTANCE;
+            double loY = Math.min(py, y) - NEAR_MISS_DISTANCE, hiY = Math.max(py, y) + NEAR_MISS_DISTANCE;
+            if (hiX < MIN_X || loX > MAX_X || hiY < MIN_Y || loY > MAX_Y) continue;
+
+            ensureCapacity(n + 1);
+            tracked[n] = v;
+            fromX[n] = px; fromY[n] = py; toX[n] = x; toY[n] = y;
+            minCol[n] = column(loX); maxCol[n] = column(hiX);
+            minRow[n] = row(loY); maxRow[n] = row(hiY);
+            for (int c = minCol[n]; c <= maxCol[n]; c++) {
+                for (int r = minRow[n]; r <= maxRow[n]; r++) {
+                    insert(r * COLUMNS + c, n);
+                }
+            }
+            n++;
+        }
+
+        List<NearMissEvent> events = new ArrayList<>();
+        Set<Long> closePairs = new HashSet<>();
+        for (int cell = 0; cell < cellCounts.length; cell++) {
+            int col = cell % COLUMNS, row = cell / COLUMNS;
+            int[] members = cells[cell];
+            for (int a = 0; a < cellCounts[cell]; a++) {
+                for (int b = a + 1; b < cellCounts[cell]; b++) {
+                    int i = members[a], j = members[b];
+                    // cada par se evalúa sólo en la primera celda que comparten
+                    if (col != Math.max(minCol[i], minCol[j]) || row != Math.max(minRow[i], minRow[j])) continue;
+                    checkPair(i, j, timestamp, closePairs, events);
+                }
+            }
+        }
+
+        Arrays.fill(tracked, 0, n, null);
+        lastPositions = positions;
+        activePairs = closePairs;
+        return events;
+    }
+
+    /** Distancia mínima entre los dos vehículos moviéndose linealmente durante el tick. */
+    private void checkPair(int i, int j, long timestamp, Set<Long> closePairs, List<NearMissEvent> events) {
+        Vehicle first = tracked[i], second = tracked[j];
+        double rx = fromX[i] - fromX[j], ry = fromY[i] - fromY[j];
+        double vx = (toX[i] - fromX[i]) - (toX[j] - fromX[j]);
+        double vy = (toY[i] - fromY[i]) - (toY[j] - fromY[j]);
+        double vv = vx * vx + vy * vy;
+        double t = vv == 0 ? 0 : Math.max(0, Math.min(1, -(rx * vx + ry * vy) / vv));
+        double dx = rx + t * vx, dy = ry + t * vy;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        if (distance >= NEAR_MISS_DISTANCE) return;
+
+        // punto medio entre los dos en el instante de mayor acercamiento
+        double x = (fromX[i] + t * (toX[i] - fromX[i]) + fromX[j] + t * (toX[j] - fromX[j])) / 2;
+        double y = (fromY[i] + t * (toY[i] - fromY[i]) + fromY[j] + t * (toY[j] - fromY[j])) / 2;
+        if (x < MIN_X || x > MAX_X || y < MIN_Y || y > MAX_Y) return;
+
+        long key = pairKey(first.getId(), second.getId());
+        closePairs.add(key);
+        if (activePairs.contains(key)) return;
+
+        events.add(new NearMissEvent(timestamp, first, second, distance, x, y));
+    }
+
+    private void insert(int cell, int index) {
+        if (cellCounts[cell] == cells[cell].length) {
+            cells[cell] = Arrays.copyOf(cells[cell], cells[cell].length * 2);
+        }
+        cells[cell][cellCounts[cell]++] = index;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= tracked.length) return;
+        int capacity = tracked.length * 2;
+        tracked = Arrays.copyOf(tracked, capacity);
+        fromX = Arrays.copyOf(fromX, capacity); fromY = Arrays.copyOf(fromY, capacity);
+        toX = Arrays.copyOf(toX, capacity); toY = Arrays.copyOf(toY, capacity);
+        minCol = Arrays.copyOf(minCol, capacity); maxCol = Arrays.copyOf(maxCol, capacity);
+        minRow = Arrays.copyOf(minRow, capacity); maxRow = Arrays.copyOf(maxRow, capacity);
+    }
+
+    private static int column(double x) {
+        return Math.max(0, Math.min(COLUMNS - 1, (int) Math.floor((x - MIN_X) / CELL_SIZE)));
+    }
+
+    private static int row(double y) {
+        return Math.max(0, Math.min(ROWS - 1, (int) Math.floor((y - MIN_Y) / CELL_SIZE)));
+    }
+
+    private static long pairKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    public void reset() {
+        lastPositions = new HashMap<>();
+        activePairs = new HashSet<>();
+    }
+}
@@ -0,0 +1,78 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.SignalPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Corredor arterial de varias intersecciones (de oeste a este) que comparten la
+ * longitud de ciclo. Cada controlador arranca sus ciclos en epoch + offset + k * ciclo;
+ * el epoch se toma del reloj de la primera intersección, así que todas deben compartirlo.
+ */
+public class Corridor {
+    private static final long START_DELAY_MS = 500;
+
+    private final List<TrafficController> intersections;
+    private final double[] spacingsM;
+    private final double speedMps;
+    private long[] offsets;
+
+    public Corridor(List<TrafficController> intersections, double[] spacingsM, double speedMps) {
+        this.intersections = new ArrayList<>(intersections);
+        this.spacingsM = spacingsM.clone();
+        this.speedMps = speedMps;
+        this.offsets = new long[intersections.size()];
+    }
+
+    static long commonCycleLength(List<SignalPlan> plans) {
+        long cycle = plans.get(0).getCycleLengthMs();
+        for (SignalPlan plan : plans) {
+            if (plan.getCycleLengthMs() != cycle) {
+                throw new IllegalStateException("Los planes del corredor deben tener el mismo ciclo ("
+                        + cycle + "ms vs " + plan.getCycleLengthMs() + "ms en " + plan.getName() + ")");
+            }
+        }
+        return cycle;
+    }
+
+    private List<SignalPlan> plans() {
+        List<SignalPlan> plans = new ArrayList<>();
+        for (TrafficController controller : intersections) plans.add(controller.getSignalPlan());
+        return plans;
+    }
+
+    /** Optimiza los desfases para la demanda dada (veh/h por sentido) y los deja configurados. */
+    public GreenWaveOptimizer.Result optimize(double demandVehPerHour, int restarts, long seed) throws InterruptedException {
+        GreenWaveOptimizer optimizer = new GreenWaveOptimizer(plans(), spacingsM, speedMps, demandVehPerHour);
+        GreenWaveOptimizer.Result result = optimizer.optimize(restarts, seed);
+        setOffsets(result.getOffsets());
+        return result;
+    }
+
+    public void setOffsets(long[] offsets) {
+        if (offsets.length != intersections.size()) {
+            throw new IllegalArgumentException("Se esperaban " + intersections.size() + " desfases");
+        }
+        this.offsets = offsets.clone();
+    }
+
+    public void start() {
+        long cycle = commonCycleLength(plans());
+        long epoch = intersections.get(0).getClock().now() + START_DELAY_MS;
+        for (int i = 0; i < intersections.size(); i++) {
+            intersections.get(i).setCycleReference(epoch, Math.floorMod(offsets[i], cycle));
+            intersections.get(i).startSimulation();
+        }
+    }
+
+    public void stop() {
+        for (TrafficController controller : intersections) {
+            controller.stopSimulation();
+            controller.clearCycleReference();
+        }
+    }
+
+    public List<TrafficController> getIntersections() { return intersections; }
+    public long[] getOffsets() { return offsets.clone(); }
+}
@@ -0,0 +1,282 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.SignalPlan;
+import co.edu.uptc.trafficlight.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Busca los desfases (offsets) de un corredor que minimizan paradas y tiempo de viaje
+ * para una demanda dada. El corredor va de oeste a este: los vehículos del acceso EAST
+ * lo recorren en sentido de ida (intersección 0 -> n-1) y los del acceso WEST en sentido
+ * de vuelta. Cada evaluación es un modelo mesoscópico determinista: llegadas uniformes,
+ * cola FIFO por intersección con intervalo de saturación y tiempo perdido de arranque.
+ */
+public class GreenWaveOptimizer {
+    private static final double STOP_PENALTY_S = 10;
+    private static final int SIMULATED_CYCLES = 10;
+    private static final int MAX_PASSES = 20;
+    private static final int UNCOORDINATED_SAMPLES = 50;
+    private static final long BANDWIDTH_STEP_MS = 100;
+
+    private final List<SignalPlan> plans;
+    private final double[] spacingsM;
+    private final double speedMps;
+    private final double demandVehPerHour;
+    private final long cycleMs;
+    private final long searchStepMs;
+
+    private final List<List<long[]>> outboundWindows = new ArrayList<>();
+    private final List<List<long[]>> inboundWindows = new ArrayList<>();
+
+    /**
+     * @param plans            plan de cada intersección, en orden de oeste a este
+     * @param spacingsM        distancia entre intersecciones consecutivas (n-1 valores)
+     * @param speedMps         velocidad de progresión
+     * @param demandVehPerHour demanda por sentido
+     */
+    public GreenWaveOptimizer(List<SignalPlan> plans, double[] spacingsM, double speedMps, double demandVehPerHour) {
+        if (plans.size() < 2) throw new IllegalArgumentException("El corredor necesita al menos dos intersecciones");
+        if (spacingsM.length != plans.size() - 1) {
+            throw new IllegalArgumentException("Se esperaban " + (plans.size() - 1) + " distancias entre intersecciones");
+        }
+        this.plans = new ArrayList<>(plans);
+        this.spacingsM = spacingsM.clone();
+        this.speedMps = speedMps;
+        this.demandVehPerHour = demandVehPerHour;
+        this.cycleMs = Corridor.commonCycleLength(plans);
+        this.searchStepMs = Math.max(100, cycleMs / 40);
+
+        for (SignalPlan plan : plans) {
+            List<long[]> out = plan.getGreenWindows("EAST", Vehicle.MovementType.STRAIGHT);
+            List<long[]> in = plan.getGreenWindows("WEST", Vehicle.MovementType.STRAIGHT);
+            if (out.isEmpty() || in.isEmpty()) {
+                throw new IllegalArgumentException("El plan " + plan.getName() + " no sirve los rectos del corredor");
+            }
+            outboundWindows.add(out);
+            inboundWindows.add(in);
+        }
+    }
+
+    /** Búsqueda por descenso coordenado con reinicios aleatorios ejecutados en paralelo. */
+    public Result optimize(int restarts, long seed) throws InterruptedException {
+        if (restarts < 1) throw new IllegalArgumentException("Se necesita al menos un reinicio: " + restarts);
+        int threads = Math.min(restarts, Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "GreenWaveOptimizer");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < restarts; i++) {
+                long restartSeed = seed + i;
+                futures.add(pool.submit(() -> coordinateDescent(new Random(restartSeed))));
+            }
+
+            long[] best = null;
+            double bestObjective = Double.MAX_VALUE;
+            for (Future<long[]> future : futures) {
+                long[] candidate = future.get();
+                double objective = evaluate(candidate).getObjective();
+                if (objective < bestObjective) {
+                    bestObjective = objective;
+                    best = candidate;
+                }
+            }
+            return new Result(best, evaluate(best), evaluateUncoordinated(new Random(seed)));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falló la búsqueda de desfases", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private long[] coordinateDescent(Random random) {
+        int candidates = (int) (cycleMs / searchStepMs);
+        long[] offsets = new long[plans.size()];
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] = random.nextInt(candidates) * searchStepMs;
+        }
+
+        double current = evaluate(offsets).getObjective();
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            boolean improved = false;
+            for (int i = 1; i < offsets.length; i++) {
+                long original = offsets[i];
+                long bestOffset = original;
+                for (int c = 0; c < candidates; c++) {
+                    offsets[i] = c * searchStepMs;
+                    double objective = evaluate(offsets).getObjective();
+                    if (objective < current - 1e-9) {
+                        current = objective;
+                        bestOffset = offsets[i];
+                        improved = true;
+                    }
+                }
+                offsets[i] = bestOffset;
+            }
+            if (!improved) break;
+        }
+        return offsets;
+    }
+
+    /** Operación no coordinada: promedio sobre desfases aleatorios independientes. */
+    private Metrics evaluateUncoordinated(Random random) {
+        double stops = 0, travel = 0, outBand = 0, inBand = 0;
+        for (int s = 0; s < UNCOORDINATED_SAMPLES; s++) {
+            long[] offsets = new long[plans.size()];
+            for (int i = 1; i < offsets.length; i++) offsets[i] = (long) (random.nextDouble() * cycleMs);
+            Metrics m = evaluate(offsets);
+            stops += m.averageStops;
+            travel += m.averageTravelTimeS;
+            outBand += m.outboundBandwidthMs;
+            inBand += m.inboundBandwidthMs;
+        }
+        int n = UNCOORDINATED_SAMPLES;
+        return new Metrics(stops / n, travel / n, outBand / n, inBand / n);
+    }
+
+    public Metrics evaluate(long[] offsets) {
+        double[] out = simulateDirection(offsets, outboundWindows, true);
+        double[] in = simulateDirection(offsets, inboundWindows, false);
+        double vehicles = out[2] + in[2];
+        return new Metrics((out[0] + in[0]) / vehicles, (out[1] + in[1]) / vehicles / 1000.0,
+                bandwidth(offsets, outboundWindows, true), bandwidth(offsets, inboundWindows, false));
+    }
+
+    /** Devuelve {paradas totales, tiempo de viaje total en ms, vehículos}. */
+    private double[] simulateDirection(long[] offsets, List<List<long[]>> windows, boolean forward) {
+        int n = offsets.length;
+        double headwayMs = 3_600_000.0 / demandVehPerHour;
+        int vehicles = Math.max(1, (int) (SIMULATED_CYCLES * cycleMs / headwayMs));
+        long[] lastDeparture = new long[n];
+        Arrays.fill(lastDeparture, Long.MIN_VALUE / 2);
+
+        double stops = 0, travel = 0;
+        for (int k = 0; k < vehicles; k++) {
+            long entry = (long) (k * headwayMs);
+            long t = entry;
+            for (int step = 0; step < n; step++) {
+                int i = forward ? step : n - 1 - step;
+                long departure = departure(i, t, lastDeparture[i], offsets[i], windows.get(i));
+                if (departure > t) stops++;
+                lastDeparture[i] = departure;
+                t = departure;
+                if (step < n - 1) t += segmentTravelMs(forward ? i : i - 1);
+            }
+            travel += t - entry;
+        }
+        return new double[]{stops, travel, vehicles};
+    }
+
+    private long departure(int intersection, long arrival, long lastDeparture, long offset, List<long[]> windows) {
+        long earliest = Math.max(arrival, lastDeparture + TrafficController.SATURATION_HEADWAY_MS);
+        if (isGreen(earliest, offset, windows)) return earliest;
+
+        long candidate = nextGreenStart(earliest, offset, windows) + TrafficController.STARTUP_LOST_TIME_MS;
+        candidate = Math.max(candidate, lastDeparture + TrafficController.SATURATION_HEADWAY_MS);
+        for (int guard = 0; guard < 4 && !isGreen(candidate, offset, windows); guard++) {
+            candidate = nextGreenStart(candidate, offset, windows) + TrafficController.STARTUP_LOST_TIME_MS;
+        }
+        return candidate;
+    }
+
+    /** Ancho de banda: porción del ciclo en que un vehículo libre cruza todo el corredor sin parar. */
+    private long bandwidth(long[] offsets, List<List<long[]>> windows, boolean forward) {
+        int n = offsets.length;
+        long passing = 0;
+        for (long t0 = 0; t0 < cycleMs; t0 += BANDWIDTH_STEP_MS) {
+            long t = t0;
+            boolean clear = true;
+            for (int step = 0; step < n && clear; step++) {
+                int i = forward ? step : n - 1 - step;
+                clear = isGreen(t, offsets[i], windows.get(i));
+                if (step < n - 1) t += segmentTravelMs(forward ? i : i - 1);
+            }
+            if (clear) passing += BANDWIDTH_STEP_MS;
+        }
+        return passing;
+    }
+
+    private long segmentTravelMs(int segment) {
+        return (long) (spacingsM[segment] / speedMps * 1000);
+    }
+
+    private boolean isGreen(long t, long offset, List<long[]> windows) {
+        long tau = Math.floorMod(t - offset, cycleMs);
+        for (long[] w : windows) {
+            if (tau >= w[0] && tau < w[1]) return true;
+        }
+        return false;
+    }
+
+    private long nextGreenStart(long t, long offset, List<long[]> windows) {
+        long tau = Math.floorMod(t - offset, cycleMs);
+        long best = Long.MAX_VALUE;
+        for (long[] w : windows) {
+            long delta = Math.floorMod(w[0] - tau, cycleMs);
+            if (delta == 0) delta = cycleMs;
+            best = Math.min(best, delta);
+        }
+        return t + best;
+    }
+
+    public long getCycleLengthMs() { return cycleMs; }
+
+    public static class Metrics {
+        private final double averageStops;
+        private final double averageTravelTimeS;
+        private final double outboundBandwidthMs;
+        private final double inboundBandwidthMs;
+
+        Metrics(double averageStops, double averageTravelTimeS, double outboundBandwidthMs, double inboundBandwidthMs) {
+            this.averageStops = averageStops;
+            this.averageTravelTimeS = averageTravelTimeS;
+            this.outboundBandwidthMs = outboundBandwidthMs;
+            this.inboundBandwidthMs = inboundBandwidthMs;
+        }
+
+        public double getObjective() { return averageTravelTimeS + STOP_PENALTY_S * averageStops; }
+        public double getAverageStops() { return averageStops; }
+        public double getAverageTravelTimeS() { return averageTravelTimeS; }
+        public double getOutboundBandwidthMs() { return outboundBandwidthMs; }
+        public double getInboundBandwidthMs() { return inboundBandwidthMs; }
+
+        @Override
+        public String toString() {
+            return String.format("paradas/veh=%.2f, viaje=%.1fs, banda ida=%.1fs, banda vuelta=%.1fs",
+                    averageStops, averageTravelTimeS, outboundBandwidthMs / 1000, inboundBandwidthMs / 1000);
+        }
+    }
+
+    public static class Result {
+        private final long[] offsets;
+        private final Metrics coordinated;
+        private final Metrics uncoordinated;
+
+        Result(long[] offsets, Metrics coordinated, Metrics uncoordinated) {
+            this.offsets = offsets;
+            this.coordinated = coordinated;
+            this.uncoordinated = uncoordinated;
+        }
+
+        public long[] getOffsets() { return offsets.clone(); }
+        public Metrics getCoordinated() { return coordinated; }
+        public Metrics getUncoordinated() { return uncoordinated; }
+
+        @Override
+        public String toString() {
+            return "Desfases (ms): " + Arrays.toString(offsets) + "\n"
+                    + "  Coordinado:    " + coordinated + "\n"
+                    + "  No coordinado: " + uncoordinated;
+        }
+    }
+}
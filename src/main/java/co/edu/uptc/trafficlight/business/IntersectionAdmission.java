@@ -0,0 +1,203 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Protocolo de admisión a la intersección: un semáforo de permisos por carril, los
+ * movimientos con la señal abierta (verde o amarillo) y los cupos de la intersección.
+ * Abrir o cerrar movimientos y admitir un vehículo ocurren bajo el mismo candado: un
+ * vehículo que tomó su permiso justo antes del cierre no entra, vuelve a esperar el
+ * siguiente verde.
+ */
+public class IntersectionAdmission {
+    public enum Result { ADMITTED, CLOSED, YIELD }
+
+    /**
+     * laneSemaphores:
+     *  "NORTH" -> { STRAIGHT -> Semaphore, LEFT -> Semaphore, RIGHT -> Semaphore }
+     */
+    private final Map<String, Map<Vehicle.MovementType, Semaphore>> laneSemaphores = new ConcurrentHashMap<>();
+    private final Map<String, Set<Vehicle.MovementType>> openMovements = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+
+    private final int capacity;
+    private final Semaphore slots;
+    private final List<Vehicle> inside = new ArrayList<>();
+    private final AtomicInteger maxInside = new AtomicInteger(0);
+
+    public IntersectionAdmission(String[] directions, int capacity) {
+        this.capacity = capacity;
+        this.slots = new Semaphore(capacity);
+        for (String direction : directions) {
+            Map<Vehicle.MovementType, Semaphore> movementMap = new ConcurrentHashMap<>();
+            for (Vehicle.MovementType mt : Vehicle.MovementType.values()) {
+                movementMap.put(mt, new Semaphore(0));
+            }
+            laneSemaphores.put(direction, movementMap);
+            openMovements.put(direction, EnumSet.noneOf(Vehicle.MovementType.class));
+        }
+    }
+
+    /**
+     * Cierra todos los movimientos del acceso y abre los que traen permisos. Dentro del
+     * candado corre primero {@code underLock} (p. ej. cambiar la luz) y, antes de liberar
+     * sus permisos, {@code onOpen} para cada movimiento que estaba cerrado.
+     */
+    public void setOpenMovements(String direction, Map<Vehicle.MovementType, Integer> permits,
+                                 Consumer<Vehicle.MovementType> onOpen, Runnable underLock) {
+        Map<Vehicle.MovementType, Semaphore> movementMap = lanes(direction);
+        synchronized (lock) {
+            if (underLock != null) underLock.run();
+            Set<Vehicle.MovementType> open = openMovements.get(direction);
+            Set<Vehicle.MovementType> wasOpen = EnumSet.copyOf(open);
+            open.clear();
+
+            for (Semaphore s : movementMap.values()) {
+                s.drainPermits();
+            }
+            for (Map.Entry<Vehicle.MovementType, Integer> entry : permits.entrySet()) {
+                if (entry.getValue() <= 0) continue;
+                Vehicle.MovementType mt = entry.getKey();
+                if (onOpen != null && !wasOpen.contains(mt)) onOpen.accept(mt);
+                movementMap.get(mt).release(entry.getValue());
+                open.add(mt);
+            }
+        }
+    }
+
+    /** Cierra sólo los movimientos dados; el resto del acceso sigue como estaba. */
+    public void closeMovements(String direction, Set<Vehicle.MovementType> movements, Runnable underLock) {
+        Map<Vehicle.MovementType, Semaphore> movementMap = lanes(direction);
+        synchronized (lock) {
+            if (underLock != null) underLock.run();
+            for (Vehicle.MovementType mt : movements) {
+                openMovements.get(direction).remove(mt);
+                movementMap.get(mt).drainPermits();
+            }
+        }
+    }
+
+    public void acquirePermit(String direction, Vehicle.MovementType movementType) throws InterruptedException {
+        lanes(direction).get(movementType).acquire();
+    }
+
+    public boolean tryAcquireSlot(long timeoutNanos) throws InterruptedException {
+        return slots.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void releaseSlot() {
+        slots.release();
+    }
+
+    /**
+     * Admite al vehículo, que ya tiene su permiso de carril y un cupo, si su movimiento
+     * sigue abierto y no cruza la trayectoria de uno que ya está en la intersección. Si
+     * debe ceder el paso devuelve su permiso de carril bajo el mismo candado, así un
+     * cierre posterior lo drena igual que a los demás. Si no entra, el cupo sigue siendo
+     * del llamador.
+     */
+    public Result admit(Vehicle vehicle) {
+        synchronized (lock) {
+            if (!openMovements.get(vehicle.getDirection()).contains(vehicle.getMovementType())) {
+                return Result.CLOSED;
+            }
+            synchronized (inside) {
+                if (conflictsWithInside(vehicle)) {
+                    lanes(vehicle.getDirection()).get(vehicle.getMovementType()).release();
+                    return Result.YIELD;
+                }
+                inside.add(vehicle);
+                int cur = inside.size();
+                maxInside.updateAndGet(max -> Math.max(max, cur));
+            }
+        }
+        return Result.ADMITTED;
+    }
+
+    /**
+     * Un giro a la izquierda cede el paso a los rectos y derechas del acceso opuesto que ya
+     * están cruzando, y esos no entran mientras la izquierda cruza. Las dos izquierdas
+     * opuestas giran sin cruzarse (sus trayectorias quedan a más de 38px), igual que rectos
+     * y derechas opuestos. Todos ceden a un acceso transversal: ninguna fase los sirve
+     * juntos, así que es un vehículo de la fase anterior que entró al final del amarillo y
+     * todavía despeja (cruzar puede tomar más que amarillo + todo rojo).
+     */
+    private boolean conflictsWithInside(Vehicle vehicle) {
+        boolean left = vehicle.getMovementType() == Vehicle.MovementType.LEFT;
+        String opposite = opposite(vehicle.getDirection());
+        for (Vehicle other : inside) {
+            if (other.getDirection().equals(vehicle.getDirection())) continue;
+            if (!opposite.equals(other.getDirection())
+                    || left != (other.getMovementType() == Vehicle.MovementType.LEFT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opposite(String direction) {
+        switch (direction) {
+            case "NORTH": return "SOUTH";
+            case "SOUTH": return "NORTH";
+            case "EAST":  return "WEST";
+            default:      return "EAST";
+        }
+    }
+
+    public void leave(Vehicle vehicle) {
+        // primero sale de la lista: si el cupo se libera antes, el siguiente vehículo
+        // puede entrar y la ocupación registrada supera momentáneamente el máximo
+        synchronized (inside) {
+            inside.remove(vehicle);
+        }
+        slots.release();
+    }
+
+    /** Deja todo cerrado y la intersección vacía; los vehículos interrumpidos no devuelven su cupo. */
+    public void clear() {
+        synchronized (lock) {
+            for (String direction : laneSemaphores.keySet()) {
+                openMovements.get(direction).clear();
+                for (Semaphore s : laneSemaphores.get(direction).values()) s.drainPermits();
+            }
+            synchronized (inside) { inside.clear(); }
+            slots.drainPermits();
+            slots.release(capacity);
+        }
+    }
+
+    private Map<Vehicle.MovementType, Semaphore> lanes(String direction) {
+        Map<Vehicle.MovementType, Semaphore> movementMap = laneSemaphores.get(direction);
+        if (movementMap == null) throw new IllegalStateException("Dirección no existe: " + direction);
+        return movementMap;
+    }
+
+    public int getCapacity() { return capacity; }
+    public int getAvailableSlots() { return slots.availablePermits(); }
+    public int getMaxInside() { return maxInside.get(); }
+    public void resetMaxInside() { maxInside.set(0); }
+
+    public int getInsideCount() {
+        synchronized (inside) { return inside.size(); }
+    }
+
+    /** Hilos bloqueados ahora mismo en los semáforos de carril y de la intersección (aproximado). */
+    public int getWaitingThreadCount() {
+        int waiting = slots.getQueueLength();
+        for (Map<Vehicle.MovementType, Semaphore> movementMap : laneSemaphores.values()) {
+            for (Semaphore s : movementMap.values()) waiting += s.getQueueLength();
+        }
+        return waiting;
+    }
+}
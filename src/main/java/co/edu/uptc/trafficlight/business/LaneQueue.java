@@ -0,0 +1,212 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.Vehicle;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Cola de un carril (dirección + movimiento) con un modelo simple de seguimiento.
+ * Es FIFO dentro de cada clase de prioridad: un bus o una emergencia se ubica detrás
+ * del último vehículo de prioridad igual o mayor, y nunca delante del vehículo de cabeza
+ * que ya salió de {@link #awaitHead} (puede estar esperando su permiso de carril).
+ *  - saturationHeadwayMs: intervalo mínimo entre dos descargas consecutivas.
+ *  - startupLostTimeMs: tiempo perdido por el primer vehículo al iniciar el verde.
+ *  - capacity: longitud de almacenamiento del carril, en vehículos.
+ */
+public class LaneQueue {
+    private static final double VEHICLE_SPACING = 25;
+    /** Mayor que {@link ConflictDetector#NEAR_MISS_DISTANCE}: dos carriles vecinos no se tocan. */
+    private static final double LANE_WIDTH = 18;
+
+    private final String direction;
+    private final Vehicle.MovementType movementType;
+    private final int capacity;
+    private final long saturationHeadwayMs;
+    private final long startupLostTimeMs;
+    private final SimulationClock clock;
+
+    private final LinkedList<Vehicle> vehicles = new LinkedList<>();
+
+    private long greenStartTime;
+    private long lastDischargeTime;
+    private boolean lastDischargeSaturated;
+    /** Cabeza que ya salió de {@link #awaitHead}: va a descargar primero, nadie se le adelanta. */
+    private Vehicle committedHead;
+    private Vehicle discharging;
+
+    private int dischargedCount;
+    private int maxLength;
+    private int spillbackEvents;
+    private long saturatedGapSum;
+    private int saturatedGapCount;
+
+    public LaneQueue(String direction, Vehicle.MovementType movementType, int capacity,
+                     long saturationHeadwayMs, long startupLostTimeMs, SimulationClock clock) {
+        this.direction = direction;
+        this.movementType = movementType;
+        this.capacity = capacity;
+        this.saturationHeadwayMs = saturationHeadwayMs;
+        this.startupLostTimeMs = startupLostTimeMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Agrega el vehículo al carril según su prioridad. Si el carril está lleno (spillback)
+     * bloquea al llamador hasta que se libere un espacio; las emergencias no esperan.
+     */
+    public synchronized void join(Vehicle vehicle) throws InterruptedException {
+        boolean emergency = vehicle.getPriorityClass() == Vehicle.PriorityClass.EMERGENCY;
+        if (vehicles.size() >= capacity) {
+            spillbackEvents++;
+        }
+        while (vehicles.size() >= capacity && !emergency) {
+            wait();
+        }
+        vehicles.add(insertionIndex(vehicle), vehicle);
+        vehicle.markQueued(clock.now());
+        maxLength = Math.max(maxLength, vehicles.size());
+        arrangeVehicles();
+    }
+
+    private int insertionIndex(Vehicle vehicle) {
+        int index = vehicles.size();
+        while (index > 0) {
+            Vehicle ahead = vehicles.get(index - 1);
+            if (ahead == committedHead || ahead.getPriorityClass().compareTo(vehicle.getPriorityClass()) >= 0) break;
+            index--;
+        }
+        return index;
+    }
+
+    /** Espera hasta que el vehículo quede al frente del carril. */
+    public synchronized void awaitHead(Vehicle vehicle) throws InterruptedException {
+        while (vehicles.peekFirst() != vehicle) {
+            if (!vehicles.contains(vehicle)) {
+                throw new InterruptedException("Vehículo " + vehicle.getId() + " ya no está en la cola");
+            }
+            wait();
+        }
+        committedHead = vehicle;
+    }
+
+    /**
+     * Retiene al vehículo de cabeza hasta que se cumplan el tiempo perdido de arranque
+     * y el intervalo de saturación. El vehículo sigue al frente del carril hasta
+     * {@link #depart} o {@link #cancelDeparture}.
+     */
+    public void awaitDeparture(Vehicle vehicle) throws InterruptedException {
+        long departure;
+        synchronized (this) {
+            while (discharging != null) {
+                wait();
+            }
+            discharging = vehicle;
+            departure = Math.max(greenStartTime + startupLostTimeMs, lastDischargeTime + saturationHeadwayMs);
+        }
+
+        try {
+            clock.sleep(departure - clock.now());
+        } catch (InterruptedException e) {
+            cancelDeparture(vehicle);
+            throw e;
+        }
+    }
+
+    /** Saca del carril al vehículo que terminó {@link #awaitDeparture}. */
+    public synchronized void depart(Vehicle vehicle) {
+        long now = clock.now();
+        if (lastDischargeSaturated && lastDischargeTime >= greenStartTime) {
+            saturatedGapSum += now - lastDischargeTime;
+            saturatedGapCount++;
+        }
+        lastDischargeSaturated = vehicles.size() > 1;
+        lastDischargeTime = now;
+        dischargedCount++;
+        discharging = null;
+        committedHead = null;
+        vehicles.remove(vehicle);
+        arrangeVehicles();
+        notifyAll();
+    }
+
+    /** El vehículo no llegó a salir (se cerró su movimiento): queda al frente y vuelve a esperar. */
+    public synchronized void cancelDeparture(Vehicle vehicle) {
+        if (discharging == vehicle) {
+            discharging = null;
+            notifyAll();
+        }
+    }
+
+    public synchronized void startGreen() {
+        greenStartTime = clock.now();
+    }
+
+    public synchronized void remove(Vehicle vehicle) {
+        if (committedHead == vehicle) committedHead = null;
+        if (vehicles.remove(vehicle)) {
+            arrangeVehicles();
+            notifyAll();
+        }
+    }
+
+    public synchronized void clear() {
+        vehicles.clear();
+        committedHead = null;
+        discharging = null;
+        notifyAll();
+    }
+
+    /** Vacía el carril y reinicia sus estadísticas. */
+    public synchronized void reset() {
+        clear();
+        greenStartTime = 0;
+        lastDischargeTime = 0;
+        lastDischargeSaturated = false;
+        dischargedCount = 0;
+        maxLength = 0;
+        spillbackEvents = 0;
+        saturatedGapSum = 0;
+        saturatedGapCount = 0;
+    }
+
+    /** Ubica cada vehículo en su posición de la cola, detrás de la línea de pare. */
+    private void arrangeVehicles() {
+        int index = 0;
+        for (Vehicle v : vehicles) {
+            double back = index * VEHICLE_SPACING;
+            double lateral = laneIndex() * LANE_WIDTH;
+            switch (direction) {
+                case "NORTH": v.setPosition(390 - lateral, 290 - back); break;
+                case "SOUTH": v.setPosition(410 + lateral, 420 + back); break;
+                case "EAST":  v.setPosition(330 - back, 360 + lateral); break;
+                case "WEST":  v.setPosition(470 + back, 340 - lateral); break;
+            }
+            index++;
+        }
+    }
+
+    private int laneIndex() {
+        switch (movementType) {
+            case LEFT: return 0;
+            case STRAIGHT: return 1;
+            default: return 2;
+        }
+    }
+
+    public synchronized int getLength() { return vehicles.size(); }
+    public synchronized List<Vehicle> getVehicles() { return new ArrayList<>(vehicles); }
+    public synchronized int getMaxLength() { return maxLength; }
+    public synchronized int getDischargedCount() { return dischargedCount; }
+    public synchronized int getSpillbackEvents() { return spillbackEvents; }
+
+    /** Intervalo medio medido entre descargas consecutivas con cola, dentro de un mismo verde. */
+    public synchronized double getMeasuredHeadwayMs() {
+        return saturatedGapCount == 0 ? 0 : (double) saturatedGapSum / saturatedGapCount;
+    }
+
+    public String getDirection() { return direction; }
+    public Vehicle.MovementType getMovementType() { return movementType; }
+    public int getCapacity() { return capacity; }
+}
@@ -0,0 +1,254 @@
+package co.edu.uptc.trafficlight.business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serie temporal de métricas en memoria fija. Las muestras de 1s entran al nivel más fino;
+ * cada nivel agrega N puntos cerrados en un punto del nivel siguiente:
+ *
+ *   1s x 600 (10 min) -> 10s x 720 (2 h) -> 60s x 1440 (1 día) -> 10min x 1008 (7 días)
+ *
+ * Todos los arreglos se reservan al construir; después sólo se sobrescriben en anillo,
+ * así que el consumo de memoria no crece con la duración de la corrida. Las esperas se
+ * guardan como histograma log-lineal, de modo que los percentiles se conservan al
+ * reducir la resolución.
+ */
+public class MetricsTimeSeries {
+    public static final long SAMPLE_INTERVAL_MS = 1000;
+
+    private static final long[] RESOLUTIONS_MS = {1_000, 10_000, 60_000, 600_000};
+    private static final int[] CAPACITIES = {600, 720, 1440, 1008};
+    static final int WAIT_BUCKETS = 48;
+
+    private final Tier[] tiers = new Tier[RESOLUTIONS_MS.length];
+    private final int[] currentWaits = new int[WAIT_BUCKETS];
+
+    public MetricsTimeSeries() {
+        for (int i = 0; i < tiers.length; i++) {
+            int ratio = i + 1 < tiers.length ? (int) (RESOLUTIONS_MS[i + 1] / RESOLUTIONS_MS[i]) : 0;
+            tiers[i] = new Tier(RESOLUTIONS_MS[i], CAPACITIES[i], ratio);
+        }
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(currentWaits, 0);
+        for (Tier tier : tiers) tier.clear();
+    }
+
+    /** Registra la espera de un vehículo dentro del intervalo de muestreo en curso. */
+    public synchronized void recordWait(long waitMs) {
+        currentWaits[bucketOf(waitMs)]++;
+    }
+
+    /**
+     * Cierra el intervalo de muestreo actual.
+     *
+     * @param crossed   vehículos que salieron de la intersección en el intervalo
+     * @param queued    vehículos en cola en todos los carriles
+     * @param maxLane   longitud del carril más cargado
+     * @param occupancy vehículos dentro de la intersección
+     */
+    public synchronized void sample(long timestamp, int crossed, int queued, int maxLane, int occupancy) {
+        Tier fine = tiers[0];
+        fine.open(timestamp);
+        fine.add(crossed, queued, maxLane, occupancy, 1, currentWaits);
+        Arrays.fill(currentWaits, 0);
+        close(0);
+    }
+
+    private void close(int level) {
+        Tier tier = tiers[level];
+        int slot = tier.commit();
+        if (level + 1 >= tiers.length) return;
+
+        Tier next = tiers[level + 1];
+        next.open(tier.startTimes[slot]);
+        next.add(tier.crossed[slot], tier.queueSum[slot], tier.maxQueue[slot], tier.occupancySum[slot],
+                tier.samples[slot], tier.waits[slot]);
+        if (++next.pendingChildren == tier.ratio) {
+            next.pendingChildren = 0;
+            close(level + 1);
+        }
+    }
+
+    /**
+     * Puntos que cubren al menos la ventana pedida, del nivel más fino que la alcanza.
+     * Ordenados del más antiguo al más reciente.
+     */
+    public synchronized List<Point> getPoints(long windowMs) {
+        Tier tier = tierFor(windowMs);
+        int count = pointCount(tier, windowMs);
+        List<Point> points = new ArrayList<>(count);
+        for (int i = count; i > 0; i--) {
+            int slot = Math.floorMod(tier.head - i, tier.capacity);
+            points.add(tier.point(slot));
+        }
+        return points;
+    }
+
+    /** Percentil de espera sobre toda la ventana, combinando los histogramas de sus puntos. */
+    public synchronized long getWaitPercentile(long windowMs, double q) {
+        Tier tier = tierFor(windowMs);
+        int[] merged = new int[WAIT_BUCKETS];
+        for (int i = pointCount(tier, windowMs); i > 0; i--) {
+            int slot = Math.floorMod(tier.head - i, tier.capacity);
+            for (int b = 0; b < WAIT_BUCKETS; b++) merged[b] += tier.waits[slot][b];
+        }
+        return Tier.percentile(merged, q);
+    }
+
+    private Tier tierFor(long windowMs) {
+        for (Tier t : tiers) {
+            if (t.resolutionMs * t.capacity >= windowMs) return t;
+        }
+        return tiers[tiers.length - 1];
+    }
+
+    private static int pointCount(Tier tier, long windowMs) {
+        // el slot de cabeza puede estar acumulando el punto siguiente: no se expone
+        int available = Math.min(tier.size, tier.capacity - 1);
+        return (int) Math.min(available, Math.max(1, windowMs / tier.resolutionMs));
+    }
+
+    static int bucketOf(long waitMs) {
+        if (waitMs < 2) return (int) Math.max(0, waitMs);
+        int octave = 63 - Long.numberOfLeadingZeros(waitMs);
+        int half = (int) ((waitMs >> (octave - 1)) & 1);
+        return Math.min(WAIT_BUCKETS - 1, 2 * octave + half);
+    }
+
+    static long bucketUpperBound(int bucket) {
+        if (bucket < 2) return bucket;
+        int octave = bucket / 2;
+        long lower = (1L << octave) + (bucket % 2) * (1L << (octave - 1));
+        return lower + (1L << (octave - 1)) - 1;
+    }
+
+    private static class Tier {
+        private final long resolutionMs;
+        private final int capacity;
+        private final int ratio;
+
+        private final long[] startTimes;
+        private final int[] crossed;
+        private final int[] queueSum;
+        private final int[] maxQueue;
+        private final int[] occupancySum;
+        private final int[] samples;
+        private final int[][] waits;
+
+        private int head;
+        private int size;
+        private boolean pending;
+        private int pendingChildren;
+
+        Tier(long resolutionMs, int capacity, int ratio) {
+            this.resolutionMs = resolutionMs;
+            this.capacity = capacity;
+            this.ratio = ratio;
+            this.startTimes = new long[capacity];
+            this.crossed = new int[capacity];
+            this.queueSum = new int[capacity];
+            this.maxQueue = new int[capacity];
+            this.occupancySum = new int[capacity];
+            this.samples = new int[capacity];
+            this.waits = new int[capacity][WAIT_BUCKETS];
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+            pending = false;
+            pendingChildren = 0;
+        }
+
+        /** Prepara el slot de cabeza para acumular un punto nuevo, si no estaba abierto. */
+        void open(long timestamp) {
+            if (pending) return;
+            pending = true;
+            startTimes[head] = timestamp;
+            crossed[head] = 0;
+            queueSum[head] = 0;
+            maxQueue[head] = 0;
+            occupancySum[head] = 0;
+            samples[head] = 0;
+            Arrays.fill(waits[head], 0);
+        }
+
+        void add(int crossedCount, int queued, int maxLane, int occupancy, int sampleCount, int[] waitHistogram) {
+            crossed[head] += crossedCount;
+            queueSum[head] += queued;
+            maxQueue[head] = Math.max(maxQueue[head], maxLane);
+            occupancySum[head] += occupancy;
+            samples[head] += sampleCount;
+            for (int b = 0; b < WAIT_BUCKETS; b++) waits[head][b] += waitHistogram[b];
+        }
+
+        int commit() {
+            int slot = head;
+            head = (head + 1) % capacity;
+            size = Math.min(size + 1, capacity);
+            pending = false;
+            return slot;
+        }
+
+        Point point(int slot) {
+            int n = Math.max(1, samples[slot]);
+            return new Point(startTimes[slot], resolutionMs,
+                    crossed[slot] * 60_000.0 / resolutionMs,
+                    (double) queueSum[slot] / n, maxQueue[slot], (double) occupancySum[slot] / n,
+                    percentile(waits[slot], 0.50), percentile(waits[slot], 0.95), percentile(waits[slot], 0.99));
+        }
+
+        private static long percentile(int[] histogram, double q) {
+            long total = 0;
+            for (int c : histogram) total += c;
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int b = 0; b < histogram.length; b++) {
+                seen += histogram[b];
+                if (seen >= rank) return bucketUpperBound(b);
+            }
+            return bucketUpperBound(histogram.length - 1);
+        }
+    }
+
+    /** Punto agregado de la serie; las esperas son cotas superiores del histograma. */
+    public static class Point {
+        private final long timestamp;
+        private final long resolutionMs;
+        private final double throughputPerMinute;
+        private final double averageQueue;
+        private final int maxLaneQueue;
+        private final double averageOccupancy;
+        private final long waitP50Ms;
+        private final long waitP95Ms;
+        private final long waitP99Ms;
+
+        Point(long timestamp, long resolutionMs, double throughputPerMinute, double averageQueue, int maxLaneQueue,
+              double averageOccupancy, long waitP50Ms, long waitP95Ms, long waitP99Ms) {
+            this.timestamp = timestamp;
+            this.resolutionMs = resolutionMs;
+            this.throughputPerMinute = throughputPerMinute;
+            this.averageQueue = averageQueue;
+            this.maxLaneQueue = maxLaneQueue;
+            this.averageOccupancy = averageOccupancy;
+            this.waitP50Ms = waitP50Ms;
+            this.waitP95Ms = waitP95Ms;
+            this.waitP99Ms = waitP99Ms;
+        }
+
+        public long getTimestamp() { return timestamp; }
+        public long getResolutionMs() { return resolutionMs; }
+        public double getThroughputPerMinute() { return throughputPerMinute; }
+        public double getAverageQueue() { return averageQueue; }
+        public int getMaxLaneQueue() { return maxLaneQueue; }
+        public double getAverageOccupancy() { return averageOccupancy; }
+        public long getWaitP50Ms() { return waitP50Ms; }
+        public long getWaitP95Ms() { return waitP95Ms; }
+        public long getWaitP99Ms() { return waitP99Ms; }
+    }
+}
@@ -0,0 +1,129 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.SignalPhase;
+import co.edu.uptc.trafficlight.model.SignalPlan;
+import co.edu.uptc.trafficlight.model.Vehicle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Carga planes semafóricos desde archivos .properties:
+ *
+ *  plan.name=Dos fases
+ *  plan.phases=NS,EW
+ *  phase.NS.movements=NORTH:STRAIGHT:3,NORTH:LEFT:1,SOUTH:STRAIGHT:3
+ *  phase.NS.green=5000
+ *  phase.NS.yellow=2000
+ *  phase.NS.allRed=1000
+ *
+ * Un plan que deja algún movimiento abierto menos que el arranque más un vehículo se
+ * rechaza: ese carril no descargaría nunca.
+ */
+public class SignalPlanLoader {
+    public static final String PLAN_PROPERTY = "trafficlight.signalPlan";
+    public static final String[] BUNDLED_PLANS = {"default", "protected-left", "leading-left"};
+
+    private static final String BUNDLED_PATH = "/co/edu/uptc/trafficlight/signal-plans/";
+
+    private SignalPlanLoader() {}
+
+    /** Plan de arranque: el archivo indicado en -Dtrafficlight.signalPlan o el plan "default". */
+    public static SignalPlan loadStartupPlan() {
+        String path = System.getProperty(PLAN_PROPERTY);
+        if (path != null && !path.isBlank()) {
+            try {
+                return load(Path.of(path));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("⚠️ No se pudo cargar el plan " + path + ": " + e.getMessage());
+            }
+        }
+        return loadBundled("default");
+    }
+
+    public static SignalPlan loadBundled(String name) {
+        try (InputStream in = SignalPlanLoader.class.getResourceAsStream(BUNDLED_PATH + name + ".properties")) {
+            if (in == null) throw new IllegalArgumentException("Plan no encontrado: " + name);
+            return parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error leyendo el plan " + name, e);
+        }
+    }
+
+    public static SignalPlan load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    public static SignalPlan parse(Reader reader) throws IOException {
+        Properties props = new Properties();
+        props.load(reader);
+
+        String planName = props.getProperty("plan.name", "Sin nombre");
+        List<SignalPhase> phases = new ArrayList<>();
+        for (String phaseId : split(required(props, "plan.phases"))) {
+            String prefix = "phase." + phaseId + ".";
+            phases.add(new SignalPhase(
+                    props.getProperty(prefix + "name", phaseId),
+                    parseMovements(required(props, prefix + "movements")),
+                    parseDuration(props, prefix + "green"),
+                    parseDuration(props, prefix + "yellow"),
+                    parseDuration(props, prefix + "allRed")));
+        }
+        SignalPlan plan = new SignalPlan(planName, phases);
+        TrafficController.requireDischargeable(plan);
+        return plan;
+    }
+
+    private static Map<String, Map<Vehicle.MovementType, Integer>> parseMovements(String value) {
+        Map<String, Map<Vehicle.MovementType, Integer>> permits = new LinkedHashMap<>();
+        for (String movement : split(value)) {
+            String[] parts = movement.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Movimiento inválido (DIRECCION:MOVIMIENTO:PERMISOS): " + movement);
+            }
+            String direction = parts[0].trim().toUpperCase();
+            if (!List.of("NORTH", "SOUTH", "EAST", "WEST").contains(direction)) {
+                throw new IllegalArgumentException("Dirección inválida: " + direction);
+            }
+            Vehicle.MovementType type = Vehicle.MovementType.valueOf(parts[1].trim().toUpperCase());
+            int count = Integer.parseInt(parts[2].trim());
+            if (count < 0) throw new IllegalArgumentException("Permisos negativos en " + movement);
+
+            permits.computeIfAbsent(direction, d -> new EnumMap<>(Vehicle.MovementType.class)).put(type, count);
+        }
+        return permits;
+    }
+
+    private static long parseDuration(Properties props, String key) {
+        long value = Long.parseLong(required(props, key).trim());
+        if (value < 0) throw new IllegalArgumentException("Duración negativa en " + key);
+        return value;
+    }
+
+    private static String required(Properties props, String key) {
+        String value = props.getProperty(key);
+        if (value == null || value.isBlank()) throw new IllegalArgumentException("Falta la propiedad " + key);
+        return value;
+    }
+
+    private static List<String> split(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) items.add(item.trim());
+        }
+        return items;
+    }
+}
@@ -0,0 +1,45 @@
+package co.edu.uptc.trafficlight.business;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloj de la simulación. Con timeScale = 1 coincide con el reloj de pared; con
+ * timeScale = 10 un verde de 5000ms dura 500ms reales. Todas las esperas y marcas de
+ * tiempo de la simulación pasan por aquí, así las métricas quedan en tiempo simulado.
+ */
+public class SimulationClock {
+    private volatile double timeScale = 1.0;
+    private volatile long baseMillis = System.currentTimeMillis();
+    private volatile long anchorNanos = System.nanoTime();
+
+    /** Milisegundos simulados, en la misma época que System.currentTimeMillis(). */
+    public long now() {
+        return baseMillis + (long) ((System.nanoTime() - anchorNanos) / 1_000_000.0 * timeScale);
+    }
+
+    public void sleep(long simulatedMs) throws InterruptedException {
+        if (simulatedMs <= 0) return;
+        TimeUnit.NANOSECONDS.sleep(toRealNanos(simulatedMs));
+    }
+
+    /** Object.wait con el tiempo expresado en milisegundos simulados; requiere tener el monitor. */
+    public void waitOn(Object monitor, long simulatedMs) throws InterruptedException {
+        if (simulatedMs <= 0) return;
+        TimeUnit.NANOSECONDS.timedWait(monitor, toRealNanos(simulatedMs));
+    }
+
+    public long toRealNanos(long simulatedMs) {
+        return Math.max(1, (long) (simulatedMs * 1_000_000 / timeScale));
+    }
+
+    public double getTimeScale() { return timeScale; }
+
+    /** Cambia la escala sin saltos en now(). */
+    public synchronized void setTimeScale(double timeScale) {
+        if (timeScale <= 0) throw new IllegalArgumentException("La escala de tiempo debe ser positiva");
+        long current = now();
+        this.anchorNanos = System.nanoTime();
+        this.baseMillis = current;
+        this.timeScale = timeScale;
+    }
+}
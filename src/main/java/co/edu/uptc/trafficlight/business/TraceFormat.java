@@ -0,0 +1,124 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.SimulationEvent;
+import co.edu.uptc.trafficlight.model.TraceFrame;
+import co.edu.uptc.trafficlight.model.TrafficLightState;
+import co.edu.uptc.trafficlight.model.Vehicle;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato binario de las trazas:
+ *
+ *  cabecera: "SEMTRACE" | versión (int) | inicio (long)
+ *  bloques:  CHUNK_MAGIC | frames (int) | primer ts (long) | último ts (long) | eventos (int)
+ *            | bytes comprimidos (int) | bytes sin comprimir (int) | payload deflate
+ *  índice:   INDEX_MAGIC | bloques (int) | por bloque: offset, primer ts, último ts (long), eventos (int)
+ *  cola:     offset del índice (long) | END_MAGIC
+ *
+ * El índice al final permite abrir la traza sin recorrerla; si falta (grabación
+ * interrumpida) el lector reconstruye el índice saltando de cabecera en cabecera.
+ */
+final class TraceFormat {
+    static final byte[] FILE_MAGIC = {'S', 'E', 'M', 'T', 'R', 'A', 'C', 'E'};
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = FILE_MAGIC.length + 4 + 8;
+    static final int CHUNK_MAGIC = 0x43484E4B;
+    static final int CHUNK_HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+    static final int INDEX_MAGIC = 0x494E4458;
+    static final int INDEX_ENTRY_BYTES = 8 + 8 + 8 + 4;
+    static final int END_MAGIC = 0x454E4421;
+    static final int TRAILER_BYTES = 8 + 4;
+
+    private static final String[] VEHICLE_TYPES = {"🚗", "🚙", "🚕", "🚐", "🚌", "🚑"};
+
+    private TraceFormat() {}
+
+    static void writeFrame(DataOutputStream out, TraceFrame frame) throws IOException {
+        out.writeLong(frame.getTimestamp());
+        for (int i = 0; i < TraceFrame.DIRECTIONS.length; i++) {
+            out.writeByte(frame.getLight(i).ordinal());
+        }
+        out.writeInt(frame.getTotalGenerated());
+        out.writeInt(frame.getCrossedSafely());
+        out.writeInt(frame.getAccidentsPrevented());
+        out.writeInt(frame.getInIntersection());
+        out.writeInt(frame.getNearMisses());
+
+        out.writeShort(frame.getVehicles().size());
+        for (TraceFrame.VehicleSnapshot v : frame.getVehicles()) {
+            out.writeInt(v.getId());
+            out.writeFloat(v.getX());
+            out.writeFloat(v.getY());
+            out.writeByte(v.getState().ordinal());
+            out.writeByte(v.getMovementType().ordinal());
+            out.writeByte(vehicleTypeIndex(v.getVehicleType()));
+        }
+
+        out.writeShort(frame.getEvents().size());
+        for (SimulationEvent e : frame.getEvents()) {
+            out.writeByte(e.getType().ordinal());
+            out.writeLong(e.getTimestamp());
+            out.writeInt(e.getVehicleId());
+            out.writeUTF(e.getDescription());
+        }
+    }
+
+    static TraceFrame readFrame(DataInputStream in) throws IOException {
+        long timestamp = in.readLong();
+        TrafficLightState[] lights = new TrafficLightState[TraceFrame.DIRECTIONS.length];
+        for (int i = 0; i < lights.length; i++) {
+            lights[i] = TrafficLightState.values()[in.readByte()];
+        }
+        int generated = in.readInt();
+        int crossed = in.readInt();
+        int prevented = in.readInt();
+        int inIntersection = in.readInt();
+        int nearMisses = in.readInt();
+
+        int vehicleCount = in.readUnsignedShort();
+        List<TraceFrame.VehicleSnapshot> vehicles = new ArrayList<>(vehicleCount);
+        for (int i = 0; i < vehicleCount; i++) {
+            vehicles.add(new TraceFrame.VehicleSnapshot(in.readInt(), in.readFloat(), in.readFloat(),
+                    Vehicle.VehicleState.values()[in.readByte()],
+                    Vehicle.MovementType.values()[in.readByte()],
+                    VEHICLE_TYPES[in.readByte()]));
+        }
+
+        int eventCount = in.readUnsignedShort();
+        List<SimulationEvent> events = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            events.add(new SimulationEvent(SimulationEvent.Type.values()[in.readByte()],
+                    in.readLong(), in.readInt(), in.readUTF()));
+        }
+
+        return new TraceFrame(timestamp, lights, generated, crossed, prevented, inIntersection, nearMisses,
+                vehicles, events);
+    }
+
+    private static int vehicleTypeIndex(String type) {
+        for (int i = 0; i < VEHICLE_TYPES.length; i++) {
+            if (VEHICLE_TYPES[i].equals(type)) return i;
+        }
+        return 0;
+    }
+
+    /** Entrada del índice de bloques. */
+    static class ChunkInfo {
+        final long offset;
+        final long firstTimestamp;
+        final long lastTimestamp;
+        final int eventCount;
+
+        ChunkInfo(long offset, long firstTimestamp, long lastTimestamp, int eventCount) {
+            this.offset = offset;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.eventCount = eventCount;
+        }
+    }
+}
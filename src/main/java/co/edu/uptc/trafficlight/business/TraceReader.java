@@ -0,0 +1,180 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.SimulationEvent;
+import co.edu.uptc.trafficlight.model.TraceFrame;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Lector perezoso de trazas. Al abrir sólo lee el índice de bloques; cada bloque se
+ * descomprime cuando se pide un instante que cae en él y se guarda en una caché LRU
+ * de CACHED_CHUNKS bloques, así que la memoria no depende del largo de la traza.
+ */
+public class TraceReader implements Closeable {
+    private static final int CACHED_CHUNKS = 4;
+
+    private final FileChannel channel;
+    private final long startTime;
+    private final List<TraceFormat.ChunkInfo> chunks;
+    private final long[] chunkStarts;
+
+    private final Map<Integer, List<TraceFrame>> cache = new LinkedHashMap<>(CACHED_CHUNKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<TraceFrame>> eldest) {
+            return size() > CACHED_CHUNKS;
+        }
+    };
+
+    public TraceReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, TraceFormat.HEADER_BYTES);
+            byte[] magic = new byte[TraceFormat.FILE_MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, TraceFormat.FILE_MAGIC)) throw new IOException("No es una traza de semáforo");
+            int version = header.getInt();
+            if (version != TraceFormat.VERSION) throw new IOException("Versión de traza no soportada: " + version);
+            this.startTime = header.getLong();
+
+            List<TraceFormat.ChunkInfo> index = readIndex();
+            this.chunks = index != null ? index : scanChunks();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.chunkStarts = new long[chunks.size()];
+        for (int i = 0; i < chunks.size(); i++) chunkStarts[i] = chunks.get(i).firstTimestamp;
+    }
+
+    private List<TraceFormat.ChunkInfo> readIndex() throws IOException {
+        long size = channel.size();
+        if (size < TraceFormat.HEADER_BYTES + TraceFormat.TRAILER_BYTES) return null;
+        ByteBuffer trailer = read(size - TraceFormat.TRAILER_BYTES, TraceFormat.TRAILER_BYTES);
+        long indexOffset = trailer.getLong();
+        if (trailer.getInt() != TraceFormat.END_MAGIC || indexOffset < TraceFormat.HEADER_BYTES) return null;
+
+        ByteBuffer head = read(indexOffset, 8);
+        if (head.getInt() != TraceFormat.INDEX_MAGIC) return null;
+        int count = head.getInt();
+        ByteBuffer entries = read(indexOffset + 8, count * TraceFormat.INDEX_ENTRY_BYTES);
+        List<TraceFormat.ChunkInfo> index = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            index.add(new TraceFormat.ChunkInfo(entries.getLong(), entries.getLong(), entries.getLong(), entries.getInt()));
+        }
+        return index;
+    }
+
+    /** Traza sin índice: recorre sólo las cabeceras de bloque, sin descomprimir. */
+    private List<TraceFormat.ChunkInfo> scanChunks() throws IOException {
+        List<TraceFormat.ChunkInfo> index = new ArrayList<>();
+        long offset = TraceFormat.HEADER_BYTES;
+        long size = channel.size();
+        while (offset + TraceFormat.CHUNK_HEADER_BYTES <= size) {
+            ByteBuffer header = read(offset, TraceFormat.CHUNK_HEADER_BYTES);
+            if (header.getInt() != TraceFormat.CHUNK_MAGIC) break;
+            header.getInt();
+            long first = header.getLong();
+            long last = header.getLong();
+            int events = header.getInt();
+            int compressedLength = header.getInt();
+            long next = offset + TraceFormat.CHUNK_HEADER_BYTES + compressedLength;
+            if (next > size) break;
+            index.add(new TraceFormat.ChunkInfo(offset, first, last, events));
+            offset = next;
+        }
+        return index;
+    }
+
+    /** Último frame con timestamp <= t (o el primero si t es anterior al inicio). */
+    public TraceFrame frameAt(long timestamp) throws IOException {
+        if (chunks.isEmpty()) return null;
+        int chunk = Arrays.binarySearch(chunkStarts, timestamp);
+        if (chunk < 0) chunk = Math.max(0, -chunk - 2);
+
+        List<TraceFrame> frames = loadChunk(chunk);
+        int lo = 0, hi = frames.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (frames.get(mid).getTimestamp() <= timestamp) lo = mid; else hi = mid - 1;
+        }
+        return frames.get(lo);
+    }
+
+    /** Primer evento posterior a t, del tipo indicado (null = cualquiera). */
+    public SimulationEvent nextEvent(long after, SimulationEvent.Type type) throws IOException {
+        for (int i = 0; i < chunks.size(); i++) {
+            TraceFormat.ChunkInfo info = chunks.get(i);
+            if (info.eventCount == 0 || info.lastTimestamp <= after) continue;
+            for (TraceFrame frame : loadChunk(i)) {
+                if (frame.getTimestamp() <= after) continue;
+                for (SimulationEvent event : frame.getEvents()) {
+                    if (event.getTimestamp() > after && (type == null || event.getType() == type)) return event;
+                }
+            }
+        }
+        return null;
+    }
+
+    private synchronized List<TraceFrame> loadChunk(int chunk) throws IOException {
+        List<TraceFrame> frames = cache.get(chunk);
+        if (frames != null) return frames;
+
+        TraceFormat.ChunkInfo info = chunks.get(chunk);
+        ByteBuffer header = read(info.offset, TraceFormat.CHUNK_HEADER_BYTES);
+        header.getInt();
+        int frameCount = header.getInt();
+        header.position(header.position() + 8 + 8 + 4);
+        int compressedLength = header.getInt();
+        int rawLength = header.getInt();
+
+        ByteBuffer payload = read(info.offset + TraceFormat.CHUNK_HEADER_BYTES, compressedLength);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload.array(), 0, compressedLength);
+            inflater.inflate(raw);
+        } catch (DataFormatException e) {
+            throw new IOException("Bloque corrupto en el offset " + info.offset, e);
+        } finally {
+            inflater.end();
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        frames = new ArrayList<>(frameCount);
+        for (int i = 0; i < frameCount; i++) frames.add(TraceFormat.readFrame(in));
+        cache.put(chunk, frames);
+        return frames;
+    }
+
+    private ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) throw new IOException("Traza truncada");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public long getStartTime() { return chunks.isEmpty() ? startTime : chunks.get(0).firstTimestamp; }
+    public long getEndTime() { return chunks.isEmpty() ? startTime : chunks.get(chunks.size() - 1).lastTimestamp; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
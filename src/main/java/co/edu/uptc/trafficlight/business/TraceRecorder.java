@@ -0,0 +1,186 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Graba la simulación en una traza: toma un frame cada FRAME_INTERVAL_MS y recibe los
+ * eventos del controlador como Observer. Los frames se agrupan en bloques comprimidos
+ * de CHUNK_FRAMES; al cerrar se escribe el índice de bloques.
+ */
+public class TraceRecorder implements Observer {
+    public static final long FRAME_INTERVAL_MS = 100;
+    private static final int CHUNK_FRAMES = 100;
+
+    private final TrafficController controller;
+    private final DataOutputStream out;
+    private final ScheduledExecutorService sampler;
+    private final List<SimulationEvent> pendingEvents = new ArrayList<>();
+    private final List<TraceFormat.ChunkInfo> index = new ArrayList<>();
+
+    private final ByteArrayOutputStream chunkBuffer = new ByteArrayOutputStream();
+    private DataOutputStream chunkOut = new DataOutputStream(chunkBuffer);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private int chunkFrames;
+    private int chunkEvents;
+    private long chunkFirstTimestamp;
+    private long chunkLastTimestamp;
+    private long position;
+    private boolean closed;
+
+    public TraceRecorder(TrafficController controller, Path file) throws IOException {
+        this.controller = controller;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 1 << 16));
+
+        out.write(TraceFormat.FILE_MAGIC);
+        out.writeInt(TraceFormat.VERSION);
+        out.writeLong(controller.getClock().now());
+        position = TraceFormat.HEADER_BYTES;
+
+        this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TraceRecorderThread");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void start() {
+        controller.addObserver(this);
+        // un cuadro cada FRAME_INTERVAL_MS de tiempo simulado
+        long periodNanos = controller.getClock().toRealNanos(FRAME_INTERVAL_MS);
+        sampler.scheduleAtFixedRate(this::recordFrame, 0, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        SimulationEvent event = null;
+        if (arg instanceof SimulationEvent) {
+            event = (SimulationEvent) arg;
+        } else if (arg instanceof NearMissEvent) {
+            NearMissEvent nearMiss = (NearMissEvent) arg;
+            event = new SimulationEvent(SimulationEvent.Type.NEAR_MISS, nearMiss.getTimestamp(),
+                    nearMiss.getFirstVehicleId(), nearMiss.toString());
+        }
+        if (event != null) {
+            synchronized (pendingEvents) { pendingEvents.add(event); }
+        }
+    }
+
+    private void recordFrame() {
+        List<SimulationEvent> events;
+        synchronized (pendingEvents) {
+            events = new ArrayList<>(pendingEvents);
+            pendingEvents.clear();
+        }
+
+        TrafficLightState[] lights = new TrafficLightState[TraceFrame.DIRECTIONS.length];
+        for (int i = 0; i < lights.length; i++) {
+            lights[i] = controller.getTrafficLights().get(TraceFrame.DIRECTIONS[i]).getCurrentState();
+        }
+        List<TraceFrame.VehicleSnapshot> vehicles = new ArrayList<>();
+        for (Vehicle v : controller.getActiveVehicles()) {
+            vehicles.add(new TraceFrame.VehicleSnapshot(v.getId(), (float) v.getX(), (float) v.getY(),
+                    v.getState(), v.getMovementType(), v.getVehicleType()));
+        }
+        TraceFrame frame = new TraceFrame(controller.getClock().now(), lights,
+                controller.getTotalVehiclesGenerated(), controller.getVehiclesCrossedSafely(),
+                controller.getAccidentsPrevented(), controller.getCurrentVehiclesInIntersection(),
+                controller.getNearMisses(), vehicles, events);
+
+        try {
+            append(frame);
+        } catch (IOException e) {
+            System.err.println("⚠️ Error grabando la traza: " + e.getMessage());
+            sampler.shutdown();
+        }
+    }
+
+    private synchronized void append(TraceFrame frame) throws IOException {
+        if (closed) return;
+        if (chunkFrames == 0) chunkFirstTimestamp = frame.getTimestamp();
+        TraceFormat.writeFrame(chunkOut, frame);
+        chunkFrames++;
+        chunkEvents += frame.getEvents().size();
+        chunkLastTimestamp = frame.getTimestamp();
+        if (chunkFrames >= CHUNK_FRAMES) flushChunk();
+    }
+
+    private void flushChunk() throws IOException {
+        if (chunkFrames == 0) return;
+        chunkOut.flush();
+        byte[] raw = chunkBuffer.toByteArray();
+
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            compressed.write(buffer, 0, n);
+        }
+
+        index.add(new TraceFormat.ChunkInfo(position, chunkFirstTimestamp, chunkLastTimestamp, chunkEvents));
+        out.writeInt(TraceFormat.CHUNK_MAGIC);
+        out.writeInt(chunkFrames);
+        out.writeLong(chunkFirstTimestamp);
+        out.writeLong(chunkLastTimestamp);
+        out.writeInt(chunkEvents);
+        out.writeInt(compressed.size());
+        out.writeInt(raw.length);
+        compressed.writeTo(out);
+        position += TraceFormat.CHUNK_HEADER_BYTES + compressed.size();
+
+        chunkBuffer.reset();
+        chunkOut = new DataOutputStream(chunkBuffer);
+        chunkFrames = 0;
+        chunkEvents = 0;
+    }
+
+    /** Detiene la grabación, vacía el último bloque y escribe el índice. */
+    public void stop() throws IOException {
+        controller.deleteObserver(this);
+        sampler.shutdown();
+        try {
+            sampler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            try {
+                flushChunk();
+                long indexOffset = position;
+                out.writeInt(TraceFormat.INDEX_MAGIC);
+                out.writeInt(index.size());
+                for (TraceFormat.ChunkInfo chunk : index) {
+                    out.writeLong(chunk.offset);
+                    out.writeLong(chunk.firstTimestamp);
+                    out.writeLong(chunk.lastTimestamp);
+                    out.writeInt(chunk.eventCount);
+                }
+                out.writeLong(indexOffset);
+                out.writeInt(TraceFormat.END_MAGIC);
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+    }
+}
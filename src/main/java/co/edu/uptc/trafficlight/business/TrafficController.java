@@ -1,56 +1,138 @@
 package co.edu.uptc.trafficlight.business;
 
 import co.edu.uptc.trafficlight.model.*;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.Observable;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 
 public class TrafficController extends Observable {
     private final Map<String, TrafficLight> trafficLights;
 
+    /** Permisos de carril, movimientos abiertos y cupos de la intersección. */
+    private final IntersectionAdmission admission;
+
     /**
-     * laneSemaphores:
-     *  "NORTH" -> { STRAIGHT -> Semaphore, LEFT -> Semaphore, RIGHT -> Semaphore }
+     * laneQueues:
+     *  "NORTH" -> { STRAIGHT -> LaneQueue, LEFT -> LaneQueue, RIGHT -> LaneQueue }
      */
-    private final Map<String, Map<Vehicle.MovementType, Semaphore>> laneSemaphores;
+    private final Map<String, Map<Vehicle.MovementType, LaneQueue>> laneQueues;
 
-    private final Semaphore intersectionSemaphore;
     private final List<Vehicle> activeVehicles;
-    private final List<Vehicle> crossingVehicles;
-    private boolean running;
+    private volatile boolean running;
+
+    /** Plan activo; un cambio se aplica al terminar la fase en curso. */
+    private volatile SignalPlan signalPlan;
 
-    private Thread lightCycleThread;
-    private Thread vehicleGeneratorThread;
-    private Thread safetyMonitorThread;
+    /** Referencia de ciclo común (modo corredor); cycleEpochMs < 0 = sin coordinación. */
+    private volatile long cycleEpochMs = -1;
+    private volatile long cycleOffsetMs;
 
-    private final Map<Integer, Thread> vehicleThreads = new ConcurrentHashMap<>();
+    /**
+     * Todos los hilos de la simulación (ciclo, generadores, monitores y vehículos) salen de
+     * este pool, que se conserva entre corridas. activeWorkers contiene los hilos que están
+     * ejecutando una tarea de la corrida actual; stopSimulation los interrumpe y los espera.
+     */
+    private final ExecutorService workerPool;
+    private final Set<Thread> activeWorkers = ConcurrentHashMap.newKeySet();
+    private final Object workersLock = new Object();
+    private final Object lifecycleLock = new Object();
+    private int generation;
 
     private final AtomicInteger totalVehiclesGenerated = new AtomicInteger(0);
     private final AtomicInteger vehiclesCrossedSafely = new AtomicInteger(0);
     private final AtomicInteger accidentsPrevented = new AtomicInteger(0);
-    private final AtomicInteger maxConcurrentInIntersection = new AtomicInteger(0);
+
+    private final Map<Vehicle.PriorityClass, WaitStatistics> waitStatistics = new EnumMap<>(Vehicle.PriorityClass.class);
+
+    /** Emergencias pendientes; el hilo del ciclo las atiende en orden de llegada. */
+    private final Queue<Vehicle> preemptionRequests = new ConcurrentLinkedQueue<>();
+    private final Object cycleLock = new Object();
+    private volatile boolean preemptionEnabled = true;
+    private final AtomicInteger preemptionCount = new AtomicInteger(0);
+    private final AtomicLong totalPreemptionMs = new AtomicLong(0);
+
+    private final MetricsTimeSeries metricsTimeSeries = new MetricsTimeSeries();
+
+    private final ConflictDetector conflictDetector = new ConflictDetector();
+    private final AtomicInteger nearMisses = new AtomicInteger(0);
+
+    private final SimulationClock clock;
+
+    /** Demanda de llegadas; un acceso con 0 vehículos/min no genera tráfico. */
+    private volatile DemandProfile demandProfile = DemandProfile.DEFAULT;
+
+    /** Semilla de los generadores; con semilla, cada acceso usa un Random propio y reproducible. */
+    private volatile Long randomSeed;
+
+    /**
+     * Con false no escribe en consola la línea por vehículo, plan, preemption y casi-colisión
+     * (los contadores y los observadores siguen igual); las alertas de seguridad y de hilos
+     * sin terminar se escriben siempre.
+     */
+    private volatile boolean verbose = true;
+
+    /** Recibe cada espera exacta (ms simulados) además del histograma de la serie temporal. */
+    private volatile LongConsumer waitListener;
 
     private static final String[] DIRECTIONS = {"NORTH", "SOUTH", "EAST", "WEST"};
     private static final int MAX_VEHICLES_IN_INTERSECTION = 2;
+    private static final long SAFETY_TICK_MS = 40;
+    private static final long STOP_TIMEOUT_MS = 2000;
+
+    private static final int LANE_CAPACITY = 8;
+    static final long SATURATION_HEADWAY_MS = 1000;
+    static final long STARTUP_LOST_TIME_MS = 1500;
+    /**
+     * Ventana abierta mínima de un movimiento: el tiempo perdido de arranque más un
+     * intervalo, para que al menos el primer vehículo alcance a salir. Con menos, el
+     * carril no descarga nunca y sus vehículos quedan atascados.
+     */
+    public static final long MIN_GREEN_WINDOW_MS = STARTUP_LOST_TIME_MS + SATURATION_HEADWAY_MS;
 
-    private static final int GREEN_STRAIGHT_PERMITS = 3;
-    private static final int GREEN_LEFT_PERMITS = 1;
-    private static final int GREEN_RIGHT_PERMITS = 1;
+    private static final long PREEMPTION_YELLOW_MS = 1000;
+    private static final long PREEMPTION_CLEARANCE_MAX_MS = 3000;
+    private static final long PREEMPTION_MAX_HOLD_MS = 10000;
 
     public TrafficController() {
+        this(new SimulationClock());
+    }
+
+    /** Varios controladores que comparten reloj (p. ej. un corredor) avanzan a la misma escala. */
+    public TrafficController(SimulationClock clock) {
+        this.clock = clock;
         this.trafficLights = new ConcurrentHashMap<>();
-        this.laneSemaphores = new ConcurrentHashMap<>();
-        this.intersectionSemaphore = new Semaphore(MAX_VEHICLES_IN_INTERSECTION);
+        this.admission = new IntersectionAdmission(DIRECTIONS, MAX_VEHICLES_IN_INTERSECTION);
+        this.laneQueues = new ConcurrentHashMap<>();
         this.activeVehicles = new ArrayList<>();
-        this.crossingVehicles = new ArrayList<>();
+
+        AtomicInteger workerCounter = new AtomicInteger(0);
+        this.workerPool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "TrafficWorker-" + workerCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
 
         initializeTrafficLights();
-        initializeSemaphores();
+        initializeLaneQueues();
+
+        this.signalPlan = SignalPlanLoader.loadStartupPlan();
+
+        for (Vehicle.PriorityClass pc : Vehicle.PriorityClass.values()) {
+            waitStatistics.put(pc, new WaitStatistics());
+        }
     }
 
     private void initializeTrafficLights() {
@@ -59,50 +141,106 @@ public class TrafficController extends Observable {
         }
     }
 
-    private void initializeSemaphores() {
+    private void initializeLaneQueues() {
         for (String direction : DIRECTIONS) {
-            Map<Vehicle.MovementType, Semaphore> movementMap = new ConcurrentHashMap<>();
+            Map<Vehicle.MovementType, LaneQueue> queueMap = new ConcurrentHashMap<>();
             for (Vehicle.MovementType mt : Vehicle.MovementType.values()) {
-                movementMap.put(mt, new Semaphore(0));
+                queueMap.put(mt, new LaneQueue(direction, mt, LANE_CAPACITY,
+                        SATURATION_HEADWAY_MS, STARTUP_LOST_TIME_MS, clock));
             }
-            laneSemaphores.put(direction, movementMap);
+            laneQueues.put(direction, queueMap);
         }
     }
 
     public void startSimulation() {
-        running = true;
-
-        lightCycleThread = new Thread(this::runLightCycle, "LightCycleThread");
-        lightCycleThread.setDaemon(true);
-        lightCycleThread.start();
-
-        vehicleGeneratorThread = new Thread(this::generateVehicles, "VehicleGeneratorThread");
-        vehicleGeneratorThread.setDaemon(true);
-        vehicleGeneratorThread.start();
+        synchronized (lifecycleLock) {
+            if (running) return;
+            if (workerPool.isShutdown()) throw new IllegalStateException("El controlador ya fue cerrado");
+            running = true;
+
+            submitWorker("LightCycleThread", this::runLightCycle);
+            Long seed = randomSeed;
+            for (int i = 0; i < DIRECTIONS.length; i++) {
+                String direction = DIRECTIONS[i];
+                Random random = seed == null ? new Random() : new Random(seed * 31 + i);
+                submitWorker("VehicleGenerator-" + direction, () -> generateVehicles(direction, random));
+            }
+            submitWorker("SafetyMonitorThread", this::monitorSafety);
+            submitWorker("MetricsSamplerThread", this::sampleMetrics);
+        }
+    }
 
-        safetyMonitorThread = new Thread(this::monitorSafety, "SafetyMonitorThread");
-        safetyMonitorThread.setDaemon(true);
-        safetyMonitorThread.start();
+    /**
+     * Ejecuta la tarea en el pool registrando su hilo. Si la corrida que la envió ya se
+     * detuvo cuando el pool la toma, la tarea se descarta.
+     */
+    private void submitWorker(String name, Runnable task) {
+        int runGeneration;
+        synchronized (workersLock) {
+            runGeneration = generation;
+        }
+        workerPool.execute(() -> {
+            Thread current = Thread.currentThread();
+            synchronized (workersLock) {
+                if (runGeneration != generation || !running) return;
+                activeWorkers.add(current);
+            }
+            String poolName = current.getName();
+            current.setName(name);
+            try {
+                task.run();
+            } finally {
+                current.setName(poolName);
+                synchronized (workersLock) {
+                    activeWorkers.remove(current);
+                    workersLock.notifyAll();
+                }
+                Thread.interrupted();
+            }
+        });
     }
 
     private void runLightCycle() {
-        String[] phases = {"NORTH_SOUTH", "EAST_WEST"};
+        SignalPlan activePlan = signalPlan;
         int currentPhase = 0;
+        long cycleStart = -1;
 
         while (running) {
             try {
-                String phase = phases[currentPhase];
+                if (activePlan != signalPlan) {
+                    activePlan = signalPlan;
+                    currentPhase = 0;
+                    cycleStart = -1;
+                    log("📋 Plan semafórico activo: " + activePlan.getName());
+                }
+                if (currentPhase == 0) {
+                    cycleStart = alignToCycleReference(activePlan, cycleStart);
+                }
+                SignalPhase phase = activePlan.getPhases().get(currentPhase);
 
                 setPhaseGreen(phase);
-                Thread.sleep(5000);
+                boolean preempted = waitInterval(greenDuration(activePlan, currentPhase, cycleStart));
 
-                setPhaseYellow(phase);
-                Thread.sleep(2000);
+                // con un cambio de plan pendiente no se sabe qué sigue: se despeja todo
+                SignalPhase next = activePlan == signalPlan
+                        ? activePlan.getPhases().get((currentPhase + 1) % activePlan.getPhases().size())
+                        : null;
 
-                setPhaseRed(phase);
-                Thread.sleep(1000);
+                if (!preempted && phase.getYellowMs() > 0) {
+                    setPhaseYellow(phase, next);
+                    preempted = waitInterval(phase.getYellowMs());
+                }
+
+                if (!preempted && phase.getAllRedMs() > 0) {
+                    setPhaseRed(phase, next);
+                    preempted = waitInterval(phase.getAllRedMs());
+                }
 
-                currentPhase = (currentPhase + 1) % phases.length;
+                if (preempted) {
+                    servePreemptions();
+                }
+
+                currentPhase = (currentPhase + 1) % activePlan.getPhases().size();
 
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -111,81 +249,241 @@ public class TrafficController extends Observable {
         }
     }
 
-    private void setPhaseGreen(String phase) {
-        if (phase.equals("NORTH_SOUTH")) {
-            setLightAndPermits("NORTH", TrafficLightState.GREEN);
-            setLightAndPermits("SOUTH", TrafficLightState.GREEN);
-            setLightAndPermits("EAST", TrafficLightState.RED);
-            setLightAndPermits("WEST", TrafficLightState.RED);
+    /**
+     * En modo corredor devuelve el inicio nominal del ciclo que empieza (epoch + offset +
+     * k * ciclo); -1 sin coordinación. El primer ciclo, o uno cuyo inicio anterior ya no cae
+     * en la grilla (cambió el plan o la referencia), espera al siguiente instante nominal.
+     * Si no, el ciclo es el que sigue al anterior aunque venga atrasado: el atraso se
+     * recupera acortando los verdes (ver {@link #greenDuration}). Sólo con más de un ciclo
+     * de atraso se salta al inicio nominal más reciente.
+     */
+    private long alignToCycleReference(SignalPlan plan, long previousStart) throws InterruptedException {
+        if (cycleEpochMs < 0) return -1;
+        long cycle = plan.getCycleLengthMs();
+        long reference = cycleEpochMs + cycleOffsetMs;
+        long now = clock.now();
+        long latest = now - Math.floorMod(now - reference, cycle);
+
+        long start;
+        if (previousStart < 0 || Math.floorMod(previousStart - reference, cycle) != 0) {
+            start = latest == now ? now : latest + cycle;
         } else {
-            setLightAndPermits("EAST", TrafficLightState.GREEN);
-            setLightAndPermits("WEST", TrafficLightState.GREEN);
-            setLightAndPermits("NORTH", TrafficLightState.RED);
-            setLightAndPermits("SOUTH", TrafficLightState.RED);
+            start = previousStart + cycle;
+            if (now - start >= cycle) start = latest;
         }
-        notifyUpdate();
+        if (start > now) clock.sleep(start - now);
+        return start;
     }
 
-    private void setPhaseYellow(String phase) {
-        if (phase.equals("NORTH_SOUTH")) {
-            setLightState("NORTH", TrafficLightState.YELLOW);
-            setLightState("SOUTH", TrafficLightState.YELLOW);
-        } else {
-            setLightState("EAST", TrafficLightState.YELLOW);
-            setLightState("WEST", TrafficLightState.YELLOW);
+    /**
+     * Verde que termina en el instante nominal de la fase dentro del ciclo, así un ciclo
+     * atrasado (p. ej. por una preemption) recupera el atraso en vez de correr los
+     * desfases del corredor. Nunca baja de lo necesario para descargar un vehículo ni
+     * supera el verde del plan salvo que el ciclo venga adelantado; amarillos y despejes
+     * no se acortan.
+     */
+    private long greenDuration(SignalPlan plan, int phaseIndex, long cycleStart) {
+        SignalPhase phase = plan.getPhases().get(phaseIndex);
+        if (cycleStart < 0) return phase.getGreenMs();
+        long greenEnd = cycleStart + phase.getGreenMs();
+        for (int i = 0; i < phaseIndex; i++) greenEnd += plan.getPhases().get(i).getDurationMs();
+        long minimum = Math.min(phase.getGreenMs(), MIN_GREEN_WINDOW_MS);
+        return Math.max(minimum, greenEnd - clock.now());
+    }
+
+    /** Espera la duración del intervalo; devuelve true si una emergencia lo interrumpe. */
+    private boolean waitInterval(long durationMs) throws InterruptedException {
+        long deadline = clock.now() + durationMs;
+        synchronized (cycleLock) {
+            while (preemptionRequests.isEmpty()) {
+                long remaining = deadline - clock.now();
+                if (remaining <= 0) return false;
+                clock.waitOn(cycleLock, remaining);
+            }
         }
+        return true;
+    }
+
+    /**
+     * Preemption: corta el verde en conflicto (amarillo), despeja la intersección,
+     * da verde al acceso de la emergencia hasta que cruce y luego retoma el plan.
+     */
+    private void servePreemptions() throws InterruptedException {
+        Vehicle emergency;
+        while (running && (emergency = preemptionRequests.poll()) != null) {
+            if (!isActive(emergency)) continue;
+
+            long start = clock.now();
+            String priorityDirection = emergency.getDirection();
+            log("🚑 Preemption: emergencia " + emergency.getId() + " desde " + priorityDirection);
+            notifyEvent(new SimulationEvent(SimulationEvent.Type.PREEMPTION, start, emergency.getId(),
+                    "Preemption: emergencia " + emergency.getId() + " desde " + priorityDirection));
+
+            boolean conflict = false;
+            for (String direction : DIRECTIONS) {
+                if (!direction.equals(priorityDirection)
+                        && trafficLights.get(direction).getCurrentState() == TrafficLightState.GREEN) {
+                    setLightState(direction, TrafficLightState.YELLOW);
+                    conflict = true;
+                }
+            }
+            if (conflict) {
+                notifyUpdate();
+                clock.sleep(PREEMPTION_YELLOW_MS);
+            }
+
+            for (String direction : DIRECTIONS) {
+                if (!direction.equals(priorityDirection)) setLightAndPermits(direction, TrafficLightState.RED, null);
+            }
+            notifyUpdate();
+            awaitIntersectionClear(PREEMPTION_CLEARANCE_MAX_MS);
+
+            setPreemptionGreen(priorityDirection);
+            long holdDeadline = clock.now() + PREEMPTION_MAX_HOLD_MS;
+            while (running && isActive(emergency) && emergency.getState() != Vehicle.VehicleState.CROSSED
+                    && clock.now() < holdDeadline) {
+                clock.sleep(100);
+            }
+
+            setLightState(priorityDirection, TrafficLightState.YELLOW);
+            notifyUpdate();
+            clock.sleep(PREEMPTION_YELLOW_MS);
+            setLightAndPermits(priorityDirection, TrafficLightState.RED, null);
+            notifyUpdate();
+
+            preemptionCount.incrementAndGet();
+            totalPreemptionMs.addAndGet(clock.now() - start);
+        }
+    }
+
+    private void awaitIntersectionClear(long maxWaitMs) throws InterruptedException {
+        long deadline = clock.now() + maxWaitMs;
+        while (getCurrentVehiclesInIntersection() > 0 && clock.now() < deadline) {
+            clock.sleep(50);
+        }
+    }
+
+    /** Verde para todos los movimientos del acceso prioritario, con permisos para vaciar su cola. */
+    private void setPreemptionGreen(String direction) {
+        Map<Vehicle.MovementType, Integer> permits = new EnumMap<>(Vehicle.MovementType.class);
+        for (Vehicle.MovementType mt : Vehicle.MovementType.values()) {
+            permits.put(mt, laneQueues.get(direction).get(mt).getLength() + 1);
+        }
+        admission.setOpenMovements(direction, permits, mt -> laneQueues.get(direction).get(mt).startGreen(),
+                () -> setLightState(direction, TrafficLightState.GREEN));
         notifyUpdate();
     }
 
-    private void setPhaseRed(String phase) {
-        if (phase.equals("NORTH_SOUTH")) {
-            setLightAndPermits("NORTH", TrafficLightState.RED);
-            setLightAndPermits("SOUTH", TrafficLightState.RED);
-        } else {
-            setLightAndPermits("EAST", TrafficLightState.RED);
-            setLightAndPermits("WEST", TrafficLightState.RED);
+    private boolean isActive(Vehicle vehicle) {
+        synchronized (activeVehicles) { return activeVehicles.contains(vehicle); }
+    }
+
+    private void setPhaseGreen(SignalPhase phase) {
+        for (String direction : DIRECTIONS) {
+            if (phase.serves(direction)) {
+                setLightAndPermits(direction, TrafficLightState.GREEN, phase);
+            } else {
+                setLightAndPermits(direction, TrafficLightState.RED, phase);
+            }
         }
         notifyUpdate();
     }
 
-    private void setLightAndPermits(String direction, TrafficLightState state) {
-        setLightState(direction, state);
+    /** Amarillo para los accesos con algún movimiento que termina; los que siguen completos quedan en verde. */
+    private void setPhaseYellow(SignalPhase phase, SignalPhase next) {
+        for (String direction : phase.getServedDirections()) {
+            if (!endingMovements(direction, phase, next).isEmpty()) {
+                setLightState(direction, TrafficLightState.YELLOW);
+            }
+        }
+        notifyUpdate();
+    }
 
-        Map<Vehicle.MovementType, Semaphore> movementMap = laneSemaphores.get(direction);
-        if (movementMap == null) return;
+    /**
+     * Despeje: cierra sólo los movimientos que terminan. Un acceso que conserva algún
+     * movimiento en la fase siguiente (p. ej. el recto tras una izquierda adelantada)
+     * vuelve a verde y ese movimiento no se interrumpe.
+     */
+    private void setPhaseRed(SignalPhase phase, SignalPhase next) {
+        for (String direction : phase.getServedDirections()) {
+            Set<Vehicle.MovementType> ending = endingMovements(direction, phase, next);
+            if (ending.isEmpty()) continue;
+            if (ending.size() == servedMovements(direction, phase).size()) {
+                setLightAndPermits(direction, TrafficLightState.RED, phase);
+            } else {
+                closeMovements(direction, ending);
+            }
+        }
+        notifyUpdate();
+    }
 
-        for (Semaphore s : movementMap.values()) {
-            s.drainPermits();
+    private static Set<Vehicle.MovementType> servedMovements(String direction, SignalPhase phase) {
+        Set<Vehicle.MovementType> served = EnumSet.noneOf(Vehicle.MovementType.class);
+        for (Vehicle.MovementType mt : Vehicle.MovementType.values()) {
+            if (phase.getPermits(direction, mt) > 0) served.add(mt);
         }
+        return served;
+    }
+
+    private static Set<Vehicle.MovementType> endingMovements(String direction, SignalPhase phase, SignalPhase next) {
+        Set<Vehicle.MovementType> ending = servedMovements(direction, phase);
+        if (next != null) ending.removeAll(servedMovements(direction, next));
+        return ending;
+    }
 
+    private void closeMovements(String direction, Set<Vehicle.MovementType> movements) {
+        admission.closeMovements(direction, movements, () -> setLightState(direction, TrafficLightState.GREEN));
+    }
+
+    /**
+     * Aplica el estado del acceso y reparte los permisos de la fase. El tiempo perdido de
+     * arranque sólo se cobra a los movimientos que estaban cerrados: un movimiento que
+     * sigue en verde de una fase a la siguiente no vuelve a arrancar.
+     */
+    private void setLightAndPermits(String direction, TrafficLightState state, SignalPhase phase) {
+        Map<Vehicle.MovementType, Integer> permits = new EnumMap<>(Vehicle.MovementType.class);
         if (state == TrafficLightState.GREEN) {
-            movementMap.get(Vehicle.MovementType.STRAIGHT).release(GREEN_STRAIGHT_PERMITS);
-            movementMap.get(Vehicle.MovementType.LEFT).release(GREEN_LEFT_PERMITS);
-            movementMap.get(Vehicle.MovementType.RIGHT).release(GREEN_RIGHT_PERMITS);
+            for (Vehicle.MovementType mt : Vehicle.MovementType.values()) {
+                permits.put(mt, phase.getPermits(direction, mt));
+            }
         }
+        admission.setOpenMovements(direction, permits, mt -> laneQueues.get(direction).get(mt).startGreen(),
+                () -> setLightState(direction, state));
     }
 
     private void setLightState(String direction, TrafficLightState state) {
-        trafficLights.get(direction).setCurrentState(state);
+        trafficLights.get(direction).setCurrentState(state, clock.now());
     }
 
-    private void generateVehicles() {
+    /**
+     * Un generador por acceso. Si el carril elegido está lleno, el generador de ese
+     * acceso queda bloqueado (spillback) hasta que la cola descargue.
+     */
+    private void generateVehicles(String direction, Random random) {
         while (running) {
             try {
-                Thread.sleep(1500 + (int)(Math.random() * 2000)); // 1.5-3.5s
+                DemandProfile demand = demandProfile;
+                if (demand.getVehiclesPerMinute(direction) <= 0) {
+                    clock.sleep(1000);
+                    continue;
+                }
+                clock.sleep(demand.nextInterarrivalMs(direction, random));
 
-                String direction = DIRECTIONS[(int)(Math.random() * DIRECTIONS.length)];
-                Vehicle vehicle = new Vehicle(direction, this);
+                Vehicle vehicle = new Vehicle(direction, demand.sampleMovement(random),
+                        demand.samplePriority(random), this, random);
+                getLaneQueue(vehicle).join(vehicle);
 
                 synchronized (activeVehicles) {
                     activeVehicles.add(vehicle);
                 }
 
+                if (vehicle.getPriorityClass() == Vehicle.PriorityClass.EMERGENCY) {
+                    requestPreemption(vehicle);
+                }
+
                 totalVehiclesGenerated.incrementAndGet();
 
-                Thread vehicleThread = new Thread(vehicle, "Vehicle-" + vehicle.getId());
-                vehicleThreads.put(vehicle.getId(), vehicleThread);
-                vehicleThread.start();
+                submitWorker("Vehicle-" + vehicle.getId(), vehicle);
 
                 notifyUpdate();
 
@@ -196,71 +494,133 @@ public class TrafficController extends Observable {
         }
     }
 
+    private void requestPreemption(Vehicle vehicle) {
+        if (!preemptionEnabled) return;
+        preemptionRequests.add(vehicle);
+        synchronized (cycleLock) {
+            cycleLock.notifyAll();
+        }
+    }
+
     public void requestCrossing(Vehicle vehicle) throws InterruptedException {
-        System.out.println("🚦 Vehículo " + vehicle.getId() + " desde " + vehicle.getDirection()
+        log("🚦 Vehículo " + vehicle.getId() + " desde " + vehicle.getDirection()
                 + " solicita cruzar (" + vehicle.getMovementType() + ")");
 
-        Map<Vehicle.MovementType, Semaphore> movementMap = laneSemaphores.get(vehicle.getDirection());
-        if (movementMap == null) throw new IllegalStateException("Dirección no existe");
+        LaneQueue queue = getLaneQueue(vehicle);
+        try {
+            while (true) {
+                queue.awaitHead(vehicle);
+                admission.acquirePermit(vehicle.getDirection(), vehicle.getMovementType());
+                queue.awaitDeparture(vehicle);
+                if (!acquireIntersection(vehicle)) {
+                    queue.cancelDeparture(vehicle);
+                    return;
+                }
+                IntersectionAdmission.Result result = admission.admit(vehicle);
+                if (result == IntersectionAdmission.Result.ADMITTED) break;
 
-        Semaphore movementSemaphore = movementMap.get(vehicle.getMovementType());
-        movementSemaphore.acquire();
+                // el permiso era de un verde que ya terminó, o hay que ceder el paso: se devuelve el cupo
+                admission.releaseSlot();
+                queue.cancelDeparture(vehicle);
+                if (result == IntersectionAdmission.Result.YIELD) clock.sleep(SAFETY_TICK_MS);
+            }
+        } catch (InterruptedException e) {
+            queue.cancelDeparture(vehicle);
+            throw e;
+        }
+        queue.depart(vehicle);
+
+        long waitMs = clock.now() - vehicle.getQueuedAt();
+        waitStatistics.get(vehicle.getPriorityClass()).record(waitMs);
+        metricsTimeSeries.recordWait(waitMs);
+        LongConsumer listener = waitListener;
+        if (listener != null) listener.accept(waitMs);
+
+        log("Vehículo " + vehicle.getId() + " ENTRA a intersección.");
+    }
 
+    /** Espera un cupo en la intersección; devuelve false si la corrida se detuvo mientras esperaba. */
+    private boolean acquireIntersection(Vehicle vehicle) throws InterruptedException {
         int waiting = 0;
-        while (!intersectionSemaphore.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+        while (!admission.tryAcquireSlot(clock.toRealNanos(100))) {
             waiting += 100;
             if (waiting > 1000) {
                 accidentsPrevented.incrementAndGet();
-                System.out.println("⚠️ Accidente prevenido: vehículo " + vehicle.getId() +
+                log("⚠️ Accidente prevenido: vehículo " + vehicle.getId() +
                         " esperó " + waiting + "ms por intersección ocupada");
+                if (waiting == 1100) {
+                    notifyEvent(new SimulationEvent(SimulationEvent.Type.LONG_WAIT, clock.now(),
+                            vehicle.getId(), "Espera larga: vehículo " + vehicle.getId() + " desde "
+                            + vehicle.getDirection() + " bloqueado por intersección ocupada"));
+                }
             }
             if (!running) {
-                return;
+                return false;
             }
         }
-
-        synchronized (crossingVehicles) {
-            crossingVehicles.add(vehicle);
-            int cur = crossingVehicles.size();
-            maxConcurrentInIntersection.updateAndGet(max -> Math.max(max, cur));
-        }
-
-        System.out.println("Vehículo " + vehicle.getId() + " ENTRA a intersección.");
+        return true;
     }
 
     public void finishCrossing(Vehicle vehicle) {
-        intersectionSemaphore.release();
-
-        synchronized (crossingVehicles) {
-            crossingVehicles.remove(vehicle);
-        }
+        admission.leave(vehicle);
 
         vehiclesCrossedSafely.incrementAndGet();
 
-        vehicleThreads.remove(vehicle.getId());
-
-        System.out.println("Vehículo " + vehicle.getId() + " SALIÓ de intersección.");
+        log("Vehículo " + vehicle.getId() + " SALIÓ de intersección.");
         notifyUpdate();
     }
 
     public void removeVehicle(Vehicle vehicle) {
+        getLaneQueue(vehicle).remove(vehicle);
         synchronized (activeVehicles) {
             activeVehicles.remove(vehicle);
         }
-        vehicleThreads.remove(vehicle.getId());
         notifyUpdate();
     }
 
+    /** Corre a la misma cadencia que la animación de los vehículos (un paso por tick). */
     private void monitorSafety() {
+        conflictDetector.reset();
         while (running) {
             try {
-                Thread.sleep(1000);
+                clock.sleep(SAFETY_TICK_MS);
+
+                int inside = admission.getInsideCount();
+                if (inside > MAX_VEHICLES_IN_INTERSECTION) {
+                    System.err.println("🚨 ALERTA: " + inside + " en intersección");
+                }
+
+                for (NearMissEvent event : conflictDetector.detect(getActiveVehicles(), clock.now())) {
+                    nearMisses.incrementAndGet();
+                    if (verbose) System.err.println("🚨 " + event);
+                    notifyEvent(event);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
 
-                synchronized (crossingVehicles) {
-                    if (crossingVehicles.size() > MAX_VEHICLES_IN_INTERSECTION) {
-                        System.err.println("🚨 ALERTA: " + crossingVehicles.size() + " en intersección");
+    private void sampleMetrics() {
+        int lastCrossed = vehiclesCrossedSafely.get();
+        while (running) {
+            try {
+                clock.sleep(MetricsTimeSeries.SAMPLE_INTERVAL_MS);
+
+                int crossed = vehiclesCrossedSafely.get();
+                int queued = 0;
+                int maxLane = 0;
+                for (Map<Vehicle.MovementType, LaneQueue> map : laneQueues.values()) {
+                    for (LaneQueue q : map.values()) {
+                        int length = q.getLength();
+                        queued += length;
+                        maxLane = Math.max(maxLane, length);
                     }
                 }
+                metricsTimeSeries.sample(clock.now(), crossed - lastCrossed, queued, maxLane,
+                        getCurrentVehiclesInIntersection());
+                lastCrossed = crossed;
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
@@ -268,50 +628,238 @@ public class TrafficController extends Observable {
         }
     }
 
-    public void notifyVehicleUpdate() { notifyUpdate(); }
+    /** Los vehículos de una corrida ya detenida no generan notificaciones. */
+    public void notifyVehicleUpdate() {
+        if (running) notifyUpdate();
+    }
+
+    private void log(String message) {
+        if (verbose) System.out.println(message);
+    }
+
+    /** Notifica a los observadores con el evento como argumento (casi-colisiones, esperas largas, preemption). */
+    private void notifyEvent(Object event) {
+        setChanged();
+        notifyObservers(event);
+    }
 
     private void notifyUpdate() {
         setChanged();
         notifyObservers();
     }
 
-    public void stopSimulation() {
-        running = false;
-
-        if (lightCycleThread != null) lightCycleThread.interrupt();
-        if (vehicleGeneratorThread != null) vehicleGeneratorThread.interrupt();
-        if (safetyMonitorThread != null) safetyMonitorThread.interrupt();
+    /**
+     * Detiene la corrida: interrumpe todos los hilos de trabajo y espera (con límite)
+     * a que terminen. Devuelve false si alguno no terminó a tiempo.
+     */
+    public boolean stopSimulation() {
+        boolean joined;
+        synchronized (lifecycleLock) {
+            synchronized (workersLock) {
+                running = false;
+                generation++;
+                for (Thread t : activeWorkers) t.interrupt();
+            }
+            joined = awaitWorkers(STOP_TIMEOUT_MS);
+            if (!joined) {
+                System.err.println("⚠️ " + activeWorkers.size() + " hilos no terminaron en " + STOP_TIMEOUT_MS + "ms");
+            }
+            clearRunState();
+        }
+        notifyUpdate();
+        return joined;
+    }
 
-        for (Thread t : vehicleThreads.values()) {
-            if (t != null && t.isAlive()) {
-                t.interrupt();
+    private boolean awaitWorkers(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (workersLock) {
+            while (!activeWorkers.isEmpty()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                try {
+                    workersLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
             }
         }
-        vehicleThreads.clear();
+        return true;
+    }
 
+    /** Deja colas, permisos y la intersección vacíos; los vehículos interrumpidos no devuelven su permiso. */
+    private void clearRunState() {
         synchronized (activeVehicles) { activeVehicles.clear(); }
-        synchronized (crossingVehicles) { crossingVehicles.clear(); }
-
-        for (Map<Vehicle.MovementType, Semaphore> map : laneSemaphores.values()) {
-            for (Semaphore s : map.values()) s.drainPermits();
+        admission.clear();
+        for (Map<Vehicle.MovementType, LaneQueue> map : laneQueues.values()) {
+            for (LaneQueue q : map.values()) q.clear();
         }
+        preemptionRequests.clear();
+    }
 
+    /** Detiene la corrida y deja el controlador como recién creado, conservando plan y pool. */
+    public void reset() {
+        synchronized (lifecycleLock) {
+            stopSimulation();
+
+            totalVehiclesGenerated.set(0);
+            vehiclesCrossedSafely.set(0);
+            accidentsPrevented.set(0);
+            admission.resetMaxInside();
+            nearMisses.set(0);
+            preemptionCount.set(0);
+            totalPreemptionMs.set(0);
+            for (WaitStatistics stats : waitStatistics.values()) stats.reset();
+            for (Map<Vehicle.MovementType, LaneQueue> map : laneQueues.values()) {
+                for (LaneQueue q : map.values()) q.reset();
+            }
+            metricsTimeSeries.clear();
+            conflictDetector.reset();
+            for (String direction : DIRECTIONS) setLightAndPermits(direction, TrafficLightState.RED, null);
+        }
         notifyUpdate();
     }
 
+    /** Detiene la corrida y libera el pool; el controlador no puede volver a iniciarse. */
+    public void shutdown() {
+        stopSimulation();
+        workerPool.shutdownNow();
+    }
+
+    public int getActiveWorkerCount() { return activeWorkers.size(); }
+
+    public SimulationClock getClock() { return clock; }
+
+    /** Acelera o desacelera la simulación; sólo con la corrida detenida. */
+    public void setTimeScale(double timeScale) {
+        synchronized (lifecycleLock) {
+            if (running) throw new IllegalStateException("No se puede cambiar la escala de tiempo en ejecución");
+            clock.setTimeScale(timeScale);
+        }
+    }
+
+    public DemandProfile getDemandProfile() { return demandProfile; }
+
+    /** Cambia la demanda; los generadores la toman en la siguiente llegada. */
+    public void setDemandProfile(DemandProfile demandProfile) {
+        if (demandProfile == null) throw new IllegalArgumentException("La demanda no puede ser nula");
+        this.demandProfile = demandProfile;
+    }
+
+    /** Fija la semilla de las llegadas de las próximas corridas; null vuelve a llegadas no reproducibles. */
+    public void setRandomSeed(Long seed) { this.randomSeed = seed; }
+
+    public void setVerbose(boolean verbose) { this.verbose = verbose; }
+    public boolean isVerbose() { return verbose; }
+
+    /**
+     * Los percentiles de {@link MetricsTimeSeries} son cotas de un histograma de dos buckets
+     * por octava; quien necesite percentiles exactos (p. ej. la regresión de desempeño)
+     * recibe aquí cada espera. Null deja de enviarlas.
+     */
+    public void setWaitListener(LongConsumer listener) { this.waitListener = listener; }
+
     public int getTotalVehiclesGenerated() { return totalVehiclesGenerated.get(); }
     public int getVehiclesCrossedSafely() { return vehiclesCrossedSafely.get(); }
     public int getAccidentsPrevented() { return accidentsPrevented.get(); }
-    public int getMaxConcurrentInIntersection() { return maxConcurrentInIntersection.get(); }
-    public int getCurrentVehiclesInIntersection() {
-        synchronized (crossingVehicles) { return crossingVehicles.size(); }
-    }
+    public int getMaxConcurrentInIntersection() { return admission.getMaxInside(); }
+    public int getNearMisses() { return nearMisses.get(); }
+    public int getAvailableIntersectionPermits() { return admission.getAvailableSlots(); }
+    public int getIntersectionCapacity() { return MAX_VEHICLES_IN_INTERSECTION; }
+    public int getCurrentVehiclesInIntersection() { return admission.getInsideCount(); }
 
     public Map<String, TrafficLight> getTrafficLights() { return trafficLights; }
 
+    public LaneQueue getLaneQueue(String direction, Vehicle.MovementType movementType) {
+        return laneQueues.get(direction).get(movementType);
+    }
+
+    private LaneQueue getLaneQueue(Vehicle vehicle) {
+        return getLaneQueue(vehicle.getDirection(), vehicle.getMovementType());
+    }
+
+    public int getQueueLength(String direction) {
+        int total = 0;
+        for (LaneQueue q : laneQueues.get(direction).values()) total += q.getLength();
+        return total;
+    }
+
+    /** Vehículos que salieron del carril desde el último reinicio. */
+    public int getDischargedCount(String direction, Vehicle.MovementType movementType) {
+        return getLaneQueue(direction, movementType).getDischargedCount();
+    }
+
+    /** Mayor longitud que alcanzó la cola del carril desde el último reinicio. */
+    public int getMaxQueueLength(String direction, Vehicle.MovementType movementType) {
+        return getLaneQueue(direction, movementType).getMaxLength();
+    }
+
+    /**
+     * Intervalo medio medido entre descargas con cola dentro de un verde, o 0 si el carril
+     * todavía no descargó con cola; comparable con el intervalo de saturación configurado.
+     */
+    public double getMeasuredHeadwayMs(String direction, Vehicle.MovementType movementType) {
+        return getLaneQueue(direction, movementType).getMeasuredHeadwayMs();
+    }
+
+    /** Tasa de descarga en saturación medida (vehículos/hora de verde), o 0 si no hay medición. */
+    public double getMeasuredSaturationFlowPerHour(String direction, Vehicle.MovementType movementType) {
+        double headway = getMeasuredHeadwayMs(direction, movementType);
+        return headway == 0 ? 0 : 3_600_000 / headway;
+    }
+
+    public int getSpillbackEvents() {
+        int total = 0;
+        for (Map<Vehicle.MovementType, LaneQueue> map : laneQueues.values()) {
+            for (LaneQueue q : map.values()) total += q.getSpillbackEvents();
+        }
+        return total;
+    }
+
     public List<Vehicle> getActiveVehicles() {
         synchronized (activeVehicles) { return new ArrayList<>(activeVehicles); }
     }
 
     public boolean isRunning() { return running; }
+
+    public WaitStatistics getWaitStatistics(Vehicle.PriorityClass priorityClass) {
+        return waitStatistics.get(priorityClass);
+    }
+    public int getPreemptionCount() { return preemptionCount.get(); }
+    public long getTotalPreemptionMs() { return totalPreemptionMs.get(); }
+    public boolean isPreemptionEnabled() { return preemptionEnabled; }
+
+    /** Permite comparar el retardo del tráfico normal con y sin preemption sobre la misma demanda. */
+    public void setPreemptionEnabled(boolean enabled) { this.preemptionEnabled = enabled; }
+
+    public MetricsTimeSeries getMetricsTimeSeries() { return metricsTimeSeries; }
+
+    public SignalPlan getSignalPlan() { return signalPlan; }
+
+    /** Coordina el inicio de cada ciclo con un reloj común; ver {@link Corridor}. */
+    public void setCycleReference(long epochMs, long offsetMs) {
+        this.cycleOffsetMs = offsetMs;
+        this.cycleEpochMs = epochMs;
+    }
+
+    public void clearCycleReference() { this.cycleEpochMs = -1; }
+    public long getCycleEpochMs() { return cycleEpochMs; }
+    public long getCycleOffsetMs() { return cycleOffsetMs; }
+
+    /** Rechaza un plan que deja algún movimiento abierto menos de {@link #MIN_GREEN_WINDOW_MS}. */
+    static void requireDischargeable(SignalPlan plan) {
+        long shortest = plan.getShortestGreenWindowMs();
+        if (shortest < MIN_GREEN_WINDOW_MS) {
+            throw new IllegalArgumentException("El plan " + plan.getName() + " deja un movimiento abierto sólo "
+                    + shortest + "ms (verde + amarillo); el mínimo es " + MIN_GREEN_WINDOW_MS + "ms");
+        }
+    }
+
+    /** Cambia el plan en caliente; el ciclo lo adopta al terminar la fase actual. */
+    public void setSignalPlan(SignalPlan plan) {
+        if (plan == null) throw new IllegalArgumentException("El plan no puede ser nulo");
+        requireDischargeable(plan);
+        this.signalPlan = plan;
+        notifyUpdate();
+    }
 }
@@ -0,0 +1,27 @@
+package co.edu.uptc.trafficlight.business;
+
+/** Acumulador de tiempos de espera (cola -> entrada a la intersección) en milisegundos. */
+public class WaitStatistics {
+    private long count;
+    private long totalMs;
+    private long maxMs;
+
+    public synchronized void record(long waitMs) {
+        count++;
+        totalMs += waitMs;
+        maxMs = Math.max(maxMs, waitMs);
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        totalMs = 0;
+        maxMs = 0;
+    }
+
+    public synchronized long getCount() { return count; }
+    public synchronized long getMaxMs() { return maxMs; }
+
+    public synchronized double getAverageMs() {
+        return count == 0 ? 0 : (double) totalMs / count;
+    }
+}
@@ -0,0 +1,71 @@
+package co.edu.uptc.trafficlight.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Demanda de tráfico: vehículos por minuto en cada acceso, reparto de giros y
+ * proporción de buses y emergencias. Los intervalos entre llegadas son uniformes
+ * en ±40% alrededor de la media.
+ */
+public class DemandProfile {
+    /** Demanda original: una llegada cada 6-14s por acceso, giros 60/20/20. */
+    public static final DemandProfile DEFAULT = uniform(6.0, 0.6, 0.2);
+
+    private final Map<String, Double> vehiclesPerMinute;
+    private final double straightShare;
+    private final double leftShare;
+    private final double busShare;
+    private final double emergencyShare;
+
+    public DemandProfile(Map<String, Double> vehiclesPerMinute, double straightShare, double leftShare,
+                         double busShare, double emergencyShare) {
+        if (straightShare < 0 || leftShare < 0 || straightShare + leftShare > 1) {
+            throw new IllegalArgumentException("Reparto de giros inválido");
+        }
+        if (busShare < 0 || emergencyShare < 0 || busShare + emergencyShare > 1) {
+            throw new IllegalArgumentException("Proporción de prioridades inválida");
+        }
+        this.vehiclesPerMinute = new HashMap<>(vehiclesPerMinute);
+        this.straightShare = straightShare;
+        this.leftShare = leftShare;
+        this.busShare = busShare;
+        this.emergencyShare = emergencyShare;
+    }
+
+    /** Misma demanda en los cuatro accesos, con 8% de buses y 2% de emergencias. */
+    public static DemandProfile uniform(double vehiclesPerMinute, double straightShare, double leftShare) {
+        Map<String, Double> rates = new HashMap<>();
+        for (String direction : TraceFrame.DIRECTIONS) rates.put(direction, vehiclesPerMinute);
+        return new DemandProfile(rates, straightShare, leftShare, 0.08, 0.02);
+    }
+
+    public double getVehiclesPerMinute(String direction) {
+        return vehiclesPerMinute.getOrDefault(direction, 0.0);
+    }
+
+    public long nextInterarrivalMs(String direction, Random random) {
+        double mean = 60_000.0 / getVehiclesPerMinute(direction);
+        return (long) (mean * (0.6 + 0.8 * random.nextDouble()));
+    }
+
+    public Vehicle.MovementType sampleMovement(Random random) {
+        double r = random.nextDouble();
+        if (r < straightShare) return Vehicle.MovementType.STRAIGHT;
+        if (r < straightShare + leftShare) return Vehicle.MovementType.LEFT;
+        return Vehicle.MovementType.RIGHT;
+    }
+
+    public Vehicle.PriorityClass samplePriority(Random random) {
+        double p = random.nextDouble();
+        if (p < emergencyShare) return Vehicle.PriorityClass.EMERGENCY;
+        if (p < emergencyShare + busShare) return Vehicle.PriorityClass.BUS;
+        return Vehicle.PriorityClass.NORMAL;
+    }
+
+    public double getStraightShare() { return straightShare; }
+    public double getLeftShare() { return leftShare; }
+    public double getBusShare() { return busShare; }
+    public double getEmergencyShare() { return emergencyShare; }
+}
@@ -0,0 +1,39 @@
+package co.edu.uptc.trafficlight.model;
+
+/** Dos vehículos cuyas trayectorias en un mismo tick pasaron a menos de la distancia mínima. */
+public class NearMissEvent {
+    private final long timestamp;
+    private final int firstVehicleId;
+    private final int secondVehicleId;
+    private final String firstDirection;
+    private final String secondDirection;
+    private final double distance;
+    private final double x;
+    private final double y;
+
+    public NearMissEvent(long timestamp, Vehicle first, Vehicle second, double distance, double x, double y) {
+        this.timestamp = timestamp;
+        this.firstVehicleId = first.getId();
+        this.secondVehicleId = second.getId();
+        this.firstDirection = first.getDirection();
+        this.secondDirection = second.getDirection();
+        this.distance = distance;
+        this.x = x;
+        this.y = y;
+    }
+
+    public long getTimestamp() { return timestamp; }
+    public int getFirstVehicleId() { return firstVehicleId; }
+    public int getSecondVehicleId() { return secondVehicleId; }
+    public String getFirstDirection() { return firstDirection; }
+    public String getSecondDirection() { return secondDirection; }
+    public double getDistance() { return distance; }
+    public double getX() { return x; }
+    public double getY() { return y; }
+
+    @Override
+    public String toString() {
+        return String.format("Casi-colisión: vehículo %d (%s) y %d (%s) a %.1fpx en (%.0f, %.0f)",
+                firstVehicleId, firstDirection, secondVehicleId, secondDirection, distance, x, y);
+    }
+}
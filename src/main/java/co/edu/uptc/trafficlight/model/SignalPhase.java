@@ -0,0 +1,46 @@
+package co.edu.uptc.trafficlight.model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fase de un plan semafórico: movimientos servidos (dirección -> movimiento -> permisos
+ * por verde) y duraciones de verde, amarillo y todo-rojo en milisegundos.
+ */
+public class SignalPhase {
+    private final String name;
+    private final Map<String, Map<Vehicle.MovementType, Integer>> permits;
+    private final long greenMs;
+    private final long yellowMs;
+    private final long allRedMs;
+
+    public SignalPhase(String name, Map<String, Map<Vehicle.MovementType, Integer>> permits,
+                       long greenMs, long yellowMs, long allRedMs) {
+        this.name = name;
+        this.permits = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Vehicle.MovementType, Integer>> entry : permits.entrySet()) {
+            this.permits.put(entry.getKey(), Collections.unmodifiableMap(new EnumMap<>(entry.getValue())));
+        }
+        this.greenMs = greenMs;
+        this.yellowMs = yellowMs;
+        this.allRedMs = allRedMs;
+    }
+
+    public boolean serves(String direction) { return permits.containsKey(direction); }
+
+    public int getPermits(String direction, Vehicle.MovementType movementType) {
+        Map<Vehicle.MovementType, Integer> movements = permits.get(direction);
+        if (movements == null) return 0;
+        return movements.getOrDefault(movementType, 0);
+    }
+
+    public Set<String> getServedDirections() { return Collections.unmodifiableSet(permits.keySet()); }
+    public String getName() { return name; }
+    public long getGreenMs() { return greenMs; }
+    public long getYellowMs() { return yellowMs; }
+    public long getAllRedMs() { return allRedMs; }
+    public long getDurationMs() { return greenMs + yellowMs + allRedMs; }
+}
@@ -0,0 +1,80 @@
+package co.edu.uptc.trafficlight.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/** Plan semafórico: lista ordenada de fases que se repite cíclicamente. */
+public class SignalPlan {
+    private final String name;
+    private final List<SignalPhase> phases;
+
+    public SignalPlan(String name, List<SignalPhase> phases) {
+        if (phases.isEmpty()) throw new IllegalArgumentException("El plan " + name + " no tiene fases");
+        this.name = name;
+        this.phases = Collections.unmodifiableList(new ArrayList<>(phases));
+    }
+
+    public String getName() { return name; }
+    public List<SignalPhase> getPhases() { return phases; }
+
+    /**
+     * Ventanas [inicio, fin) dentro del ciclo en que el movimiento tiene verde o amarillo.
+     * Si la fase siguiente también lo sirve, el movimiento no se cierra en el despeje y la
+     * ventana sigue sin corte hasta esa fase.
+     */
+    public List<long[]> getGreenWindows(String direction, Vehicle.MovementType movementType) {
+        List<long[]> windows = new ArrayList<>();
+        long phaseStart = 0;
+        for (int i = 0; i < phases.size(); i++) {
+            SignalPhase phase = phases.get(i);
+            if (phase.getPermits(direction, movementType) > 0) {
+                SignalPhase next = phases.get((i + 1) % phases.size());
+                long end = next.getPermits(direction, movementType) > 0
+                        ? phaseStart + phase.getDurationMs()
+                        : phaseStart + phase.getGreenMs() + phase.getYellowMs();
+                long[] last = windows.isEmpty() ? null : windows.get(windows.size() - 1);
+                if (last != null && last[1] == phaseStart) {
+                    last[1] = end;
+                } else {
+                    windows.add(new long[]{phaseStart, end});
+                }
+            }
+            phaseStart += phase.getDurationMs();
+        }
+        return windows;
+    }
+
+    /**
+     * La ventana abierta más corta entre todos los movimientos que sirve el plan; una
+     * ventana que cruza el fin del ciclo cuenta como una sola. Un movimiento que nunca se
+     * cierra cuenta como un ciclo completo.
+     */
+    public long getShortestGreenWindowMs() {
+        long cycle = getCycleLengthMs();
+        long shortest = Long.MAX_VALUE;
+        Set<String> directions = new LinkedHashSet<>();
+        for (SignalPhase phase : phases) directions.addAll(phase.getServedDirections());
+        for (String direction : directions) {
+            for (Vehicle.MovementType mt : Vehicle.MovementType.values()) {
+                List<long[]> windows = getGreenWindows(direction, mt);
+                if (windows.isEmpty()) continue;
+                long[] first = windows.get(0), last = windows.get(windows.size() - 1);
+                boolean wraps = windows.size() > 1 && first[0] == 0 && last[1] == cycle;
+                for (int i = wraps ? 1 : 0; i < windows.size() - (wraps ? 1 : 0); i++) {
+                    shortest = Math.min(shortest, windows.get(i)[1] - windows.get(i)[0]);
+                }
+                if (wraps) shortest = Math.min(shortest, first[1] + cycle - last[0]);
+            }
+        }
+        return shortest;
+    }
+
+    public long getCycleLengthMs() {
+        long total = 0;
+        for (SignalPhase phase : phases) total += phase.getDurationMs();
+        return total;
+    }
+}
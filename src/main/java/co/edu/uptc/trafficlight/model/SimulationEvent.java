@@ -0,0 +1,26 @@
+package co.edu.uptc.trafficlight.model;
+
+/** Evento puntual de la simulación que se guarda en las trazas y permite saltar a él. */
+public class SimulationEvent {
+    public enum Type { LONG_WAIT, NEAR_MISS, PREEMPTION }
+
+    private final Type type;
+    private final long timestamp;
+    private final int vehicleId;
+    private final String description;
+
+    public SimulationEvent(Type type, long timestamp, int vehicleId, String description) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.vehicleId = vehicleId;
+        this.description = description;
+    }
+
+    public Type getType() { return type; }
+    public long getTimestamp() { return timestamp; }
+    public int getVehicleId() { return vehicleId; }
+    public String getDescription() { return description; }
+
+    @Override
+    public String toString() { return description; }
+}
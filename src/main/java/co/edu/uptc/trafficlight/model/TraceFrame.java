@@ -0,0 +1,70 @@
+package co.edu.uptc.trafficlight.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/** Estado completo de la intersección en un instante, tal como se graba en una traza. */
+public class TraceFrame {
+    public static final String[] DIRECTIONS = {"NORTH", "SOUTH", "EAST", "WEST"};
+
+    private final long timestamp;
+    private final TrafficLightState[] lights;
+    private final int totalGenerated;
+    private final int crossedSafely;
+    private final int accidentsPrevented;
+    private final int inIntersection;
+    private final int nearMisses;
+    private final List<VehicleSnapshot> vehicles;
+    private final List<SimulationEvent> events;
+
+    public TraceFrame(long timestamp, TrafficLightState[] lights, int totalGenerated, int crossedSafely,
+                      int accidentsPrevented, int inIntersection, int nearMisses,
+                      List<VehicleSnapshot> vehicles, List<SimulationEvent> events) {
+        this.timestamp = timestamp;
+        this.lights = lights.clone();
+        this.totalGenerated = totalGenerated;
+        this.crossedSafely = crossedSafely;
+        this.accidentsPrevented = accidentsPrevented;
+        this.inIntersection = inIntersection;
+        this.nearMisses = nearMisses;
+        this.vehicles = Collections.unmodifiableList(vehicles);
+        this.events = Collections.unmodifiableList(events);
+    }
+
+    public long getTimestamp() { return timestamp; }
+    /** Estado del semáforo de DIRECTIONS[index]. */
+    public TrafficLightState getLight(int index) { return lights[index]; }
+    public int getTotalGenerated() { return totalGenerated; }
+    public int getCrossedSafely() { return crossedSafely; }
+    public int getAccidentsPrevented() { return accidentsPrevented; }
+    public int getInIntersection() { return inIntersection; }
+    public int getNearMisses() { return nearMisses; }
+    public List<VehicleSnapshot> getVehicles() { return vehicles; }
+    public List<SimulationEvent> getEvents() { return events; }
+
+    public static class VehicleSnapshot {
+        private final int id;
+        private final float x;
+        private final float y;
+        private final Vehicle.VehicleState state;
+        private final Vehicle.MovementType movementType;
+        private final String vehicleType;
+
+        public VehicleSnapshot(int id, float x, float y, Vehicle.VehicleState state,
+                               Vehicle.MovementType movementType, String vehicleType) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.state = state;
+            this.movementType = movementType;
+            this.vehicleType = vehicleType;
+        }
+
+        public int getId() { return id; }
+        public float getX() { return x; }
+        public float getY() { return y; }
+        public Vehicle.VehicleState getState() { return state; }
+        public Vehicle.MovementType getMovementType() { return movementType; }
+        public String getVehicleType() { return vehicleType; }
+    }
+}
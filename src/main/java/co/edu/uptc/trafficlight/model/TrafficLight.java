@@ -1,21 +1,29 @@
 package co.edu.uptc.trafficlight.model;
 
 public class TrafficLight {
-    private TrafficLightState currentState;
+    private volatile TrafficLightState currentState;
     private String direction;
     private long stateStartTime;
 
     public TrafficLight(String direction) {
         this.direction = direction;
         this.currentState = TrafficLightState.RED;
-        this.stateStartTime = System.currentTimeMillis();
+        this.stateStartTime = 0;
     }
 
     public TrafficLightState getCurrentState() { return currentState; }
-    public void setCurrentState(TrafficLightState state) {
+
+    /** @param timestamp instante de la simulación en que empieza el estado */
+    public synchronized void setCurrentState(TrafficLightState state, long timestamp) {
+        if (state == currentState) return;
         this.currentState = state;
-        this.stateStartTime = System.currentTimeMillis();
+        this.stateStartTime = timestamp;
     }
     public String getDirection() { return direction; }
-    public long getStateStartTime() { return stateStartTime; }
+    public synchronized long getStateStartTime() { return stateStartTime; }
+
+    /** Desde cuándo está en rojo, o -1 si no lo está; lectura atómica de ambos datos. */
+    public synchronized long getRedSince() {
+        return currentState == TrafficLightState.RED ? stateStartTime : -1;
+    }
 }
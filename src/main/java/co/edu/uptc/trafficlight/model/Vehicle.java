@@ -1,41 +1,49 @@
 package co.edu.uptc.trafficlight.model;
 
 import co.edu.uptc.trafficlight.business.TrafficController;
-import javafx.application.Platform;
 
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class Vehicle implements Runnable {
     private static final AtomicInteger vehicleCounter = new AtomicInteger(0);
     private final int id;
     private final String direction;
-    private VehicleState state;
+    private volatile VehicleState state;
     private final TrafficController controller;
 
-    private double x, y;
+    private volatile double x, y;
     private double targetX, targetY;
     private boolean isAnimating = false;
     private String vehicleType;
     private MovementType movementType;
+    private final PriorityClass priorityClass;
+    private volatile long queuedAt;
+    private volatile long entryRedSince = -1;
+    private volatile long enteredAt = -1;
 
     private final int crossingSpeed;
 
     public enum VehicleState { WAITING, APPROACHING, CROSSING, CROSSED }
     public enum MovementType { STRAIGHT, LEFT, RIGHT }
-
-    public Vehicle(String direction, TrafficController controller) {
+    /** Ordenado de menor a mayor prioridad. */
+    public enum PriorityClass { NORMAL, BUS, EMERGENCY }
+
+    /**
+     * El movimiento y la clase de prioridad los decide la demanda del controlador; el
+     * Random del generador fija también el tipo y la velocidad, así una semilla
+     * reproduce la misma corrida.
+     */
+    public Vehicle(String direction, MovementType movementType, PriorityClass priorityClass,
+                   TrafficController controller, Random random) {
         this.id = vehicleCounter.incrementAndGet();
         this.direction = direction;
         this.state = VehicleState.WAITING;
         this.controller = controller;
-        this.vehicleType = randomVehicleType();
-
-        double r = Math.random();
-        if (r < 0.6) movementType = MovementType.STRAIGHT;
-        else if (r < 0.8) movementType = MovementType.LEFT;
-        else movementType = MovementType.RIGHT;
-
-        this.crossingSpeed = 50 + (int)(Math.random() * 40);
+        this.movementType = movementType;
+        this.priorityClass = priorityClass;
+        this.vehicleType = randomVehicleType(random);
+        this.crossingSpeed = 50 + random.nextInt(40);
 
         initializePosition();
     }
@@ -51,16 +59,17 @@ public class Vehicle implements Runnable {
         this.targetY = y;
     }
 
-    private String randomVehicleType() {
-        String[] types = {"🚗","🚙","🚕","🚐","🚌"};
-        return types[(int)(Math.random() * types.length)];
+    private String randomVehicleType(Random random) {
+        if (priorityClass == PriorityClass.EMERGENCY) return "🚑";
+        if (priorityClass == PriorityClass.BUS) return "🚌";
+        String[] types = {"🚗","🚙","🚕","🚐"};
+        return types[random.nextInt(types.length)];
     }
 
     @Override
     public void run() {
         try {
             setState(VehicleState.WAITING);
-            Thread.sleep(400 + (int)(Math.random() * 800));
 
             controller.requestCrossing(this);
 
@@ -68,8 +77,7 @@ public class Vehicle implements Runnable {
                 controller.removeVehicle(this);
                 return;
             }
-
-            Thread.sleep(300 + (int)(Math.random() * 500));
+            recordEntry();
 
             setState(VehicleState.APPROACHING);
             animateToIntersection();
@@ -88,16 +96,27 @@ public class Vehicle implements Runnable {
         }
     }
 
+    /**
+     * Registra la luz del acceso al momento de entrar, leída por fuera del protocolo de
+     * admisión: permite verificar de forma independiente que nadie entra en rojo.
+     */
+    private void recordEntry() {
+        entryRedSince = controller.getTrafficLights().get(direction).getRedSince();
+        enteredAt = controller.getClock().now();
+    }
+
     private void animateToIntersection() throws InterruptedException {
         isAnimating = true;
         double startX = x, startY = y;
         double entryX = x, entryY = y;
 
+        // sigue en su carril hasta la línea de entrada, del lado de la caja por el que llega:
+        // los carriles de un acceso no se juntan
         switch (direction) {
-            case "NORTH": entryX = 390; entryY = 320; break;
-            case "SOUTH": entryX = 410; entryY = 380; break;
-            case "EAST":  entryX = 420; entryY = 360; break;
-            case "WEST":  entryX = 380; entryY = 340; break;
+            case "NORTH": entryY = 320; break;
+            case "SOUTH": entryY = 380; break;
+            case "EAST":  entryX = 380; break;
+            case "WEST":  entryX = 420; break;
         }
 
         for (int i = 0; i <= 20; i++) {
@@ -105,8 +124,8 @@ public class Vehicle implements Runnable {
             double t = i / 20.0;
             x = startX + (entryX - startX) * t;
             y = startY + (entryY - startY) * t;
-            Platform.runLater(() -> controller.notifyVehicleUpdate());
-            Thread.sleep(40);
+            controller.notifyVehicleUpdate();
+            controller.getClock().sleep(40);
         }
         isAnimating = false;
     }
@@ -119,22 +138,22 @@ public class Vehicle implements Runnable {
 
         switch (direction) {
             case "NORTH":
-                if (movementType == MovementType.STRAIGHT) { ex = 390; ey = 600; }
+                if (movementType == MovementType.STRAIGHT) { ey = 600; }
                 else if (movementType == MovementType.LEFT) { ex = 600; ey = 360; cx = 480; cy = 360; }
                 else { ex = 50; ey = 340; cx = 320; cy = 340; }
                 break;
             case "SOUTH":
-                if (movementType == MovementType.STRAIGHT) { ex = 410; ey = 50; }
+                if (movementType == MovementType.STRAIGHT) { ey = 50; }
                 else if (movementType == MovementType.LEFT) { ex = 50; ey = 340; cx = 320; cy = 340; }
                 else { ex = 600; ey = 360; cx = 480; cy = 360; }
                 break;
             case "EAST":
-                if (movementType == MovementType.STRAIGHT) { ex = 600; ey = 360; }
+                if (movementType == MovementType.STRAIGHT) { ex = 600; }
                 else if (movementType == MovementType.LEFT) { ex = 410; ey = 50; cx = 410; cy = 120; }
                 else { ex = 390; ey = 600; cx = 390; cy = 480; }
                 break;
             case "WEST":
-                if (movementType == MovementType.STRAIGHT) { ex = 50; ey = 340; }
+                if (movementType == MovementType.STRAIGHT) { ex = 50; }
                 else if (movementType == MovementType.LEFT) { ex = 390; ey = 600; cx = 390; cy = 480; }
                 else { ex = 410; ey = 50; cx = 410; cy = 120; }
                 break;
@@ -152,8 +171,8 @@ public class Vehicle implements Runnable {
                 x = oneMinusT * oneMinusT * sx + 2 * oneMinusT * t * cx + t * t * ex;
                 y = oneMinusT * oneMinusT * sy + 2 * oneMinusT * t * cy + t * t * ey;
             }
-            Platform.runLater(() -> controller.notifyVehicleUpdate());
-            Thread.sleep(crossingSpeed);
+            controller.notifyVehicleUpdate();
+            controller.getClock().sleep(crossingSpeed);
         }
 
         this.targetX = ex;
@@ -171,19 +190,30 @@ public class Vehicle implements Runnable {
             double t = i / 20.0;
             x = startX + (endX - startX) * t;
             y = startY + (endY - startY) * t;
-            Platform.runLater(() -> controller.notifyVehicleUpdate());
-            Thread.sleep(30);
+            controller.notifyVehicleUpdate();
+            controller.getClock().sleep(30);
         }
 
-        Platform.runLater(() -> controller.removeVehicle(this));
+        controller.removeVehicle(this);
         isAnimating = false;
     }
 
     public double getX() { return x; }
     public double getY() { return y; }
+    public void setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
     public boolean isAnimating() { return isAnimating; }
     public String getVehicleType() { return vehicleType; }
     public MovementType getMovementType() { return movementType; }
+    /** Instante de entrada a la intersección, o -1 si todavía no entró. */
+    public long getEnteredAt() { return enteredAt; }
+    /** Desde cuándo estaba en rojo su semáforo al entrar, o -1 si no estaba en rojo. */
+    public long getEntryRedSince() { return entryRedSince; }
+    public PriorityClass getPriorityClass() { return priorityClass; }
+    public long getQueuedAt() { return queuedAt; }
+    public void markQueued(long timestamp) { this.queuedAt = timestamp; }
     public int getId() { return id; }
     public String getDirection() { return direction; }
     public VehicleState getState() { return state; }
@@ -0,0 +1,173 @@
+package co.edu.uptc.trafficlight.view;
+
+import co.edu.uptc.trafficlight.business.TraceReader;
+import co.edu.uptc.trafficlight.model.SimulationEvent;
+import co.edu.uptc.trafficlight.model.TraceFrame;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.paint.Color;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Barra de reproducción de trazas: play/pausa, línea de tiempo para desplazarse,
+ * velocidad 0.1x-100x (escala logarítmica) y salto al siguiente evento.
+ * Sólo pide al lector el frame del instante actual, que se decodifica bajo demanda.
+ */
+public class TracePlaybackPanel extends HBox {
+    private static final String[] EVENT_FILTERS = {"Cualquier evento", "Esperas largas", "Casi-colisiones", "Preemptions"};
+
+    private final TraceReader reader;
+    private final Consumer<TraceFrame> renderer;
+    private final Consumer<String> log;
+
+    private final Slider timeline;
+    private final Slider speedSlider;
+    private final Label speedLabel;
+    private final Label timeLabel;
+    private final Button playButton;
+    private final ComboBox<String> eventFilter;
+    private final AnimationTimer timer;
+
+    private double position;
+    private long lastPulse;
+    private boolean playing;
+    private boolean updatingTimeline;
+
+    public TracePlaybackPanel(TraceReader reader, Consumer<TraceFrame> renderer, Consumer<String> log, Runnable onClose) {
+        super(10);
+        this.reader = reader;
+        this.renderer = renderer;
+        this.log = log;
+        this.position = reader.getStartTime();
+
+        setAlignment(Pos.CENTER_LEFT);
+        setStyle("-fx-background-color: #34495e; -fx-padding: 8px;");
+
+        playButton = new Button("▶️");
+        playButton.setOnAction(e -> setPlaying(!playing));
+
+        timeline = new Slider(0, Math.max(1, reader.getEndTime() - reader.getStartTime()), 0);
+        HBox.setHgrow(timeline, Priority.ALWAYS);
+        timeline.valueProperty().addListener((obs, old, value) -> {
+            if (!updatingTimeline) seek(reader.getStartTime() + value.longValue());
+        });
+
+        timeLabel = new Label();
+        timeLabel.setTextFill(Color.WHITE);
+
+        speedSlider = new Slider(-1, 2, 0);
+        speedSlider.setPrefWidth(120);
+        speedLabel = new Label();
+        speedLabel.setTextFill(Color.WHITE);
+        speedSlider.valueProperty().addListener((obs, old, value) -> updateSpeedLabel());
+        updateSpeedLabel();
+
+        eventFilter = new ComboBox<>();
+        eventFilter.getItems().addAll(EVENT_FILTERS);
+        eventFilter.getSelectionModel().selectFirst();
+        Button nextEventButton = new Button("⏭ Siguiente evento");
+        nextEventButton.setOnAction(e -> jumpToNextEvent());
+
+        Button closeButton = new Button("✖ Salir");
+        closeButton.setOnAction(e -> {
+            close();
+            onClose.run();
+        });
+
+        getChildren().addAll(playButton, timeline, timeLabel, speedSlider, speedLabel,
+                eventFilter, nextEventButton, closeButton);
+
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (lastPulse != 0) advance((now - lastPulse) / 1_000_000.0);
+                lastPulse = now;
+            }
+        };
+        seek(position);
+    }
+
+    private double speed() {
+        return Math.pow(10, speedSlider.getValue());
+    }
+
+    private void updateSpeedLabel() {
+        speedLabel.setText(String.format("%.1fx", speed()));
+    }
+
+    private void setPlaying(boolean play) {
+        playing = play;
+        playButton.setText(play ? "⏸" : "▶️");
+        lastPulse = 0;
+        if (play) timer.start(); else timer.stop();
+    }
+
+    private void advance(double elapsedMs) {
+        position += elapsedMs * speed();
+        if (position >= reader.getEndTime()) {
+            position = reader.getEndTime();
+            setPlaying(false);
+        }
+        show();
+    }
+
+    private void seek(double timestamp) {
+        position = Math.max(reader.getStartTime(), Math.min(reader.getEndTime(), timestamp));
+        show();
+    }
+
+    private void show() {
+        try {
+            TraceFrame frame = reader.frameAt((long) position);
+            if (frame != null) renderer.accept(frame);
+        } catch (IOException e) {
+            setPlaying(false);
+            log.accept("⚠️ Error leyendo la traza: " + e.getMessage());
+        }
+
+        long elapsed = (long) position - reader.getStartTime();
+        updatingTimeline = true;
+        timeline.setValue(elapsed);
+        updatingTimeline = false;
+        timeLabel.setText(String.format("%d:%02d", elapsed / 60_000, (elapsed / 1000) % 60));
+    }
+
+    private void jumpToNextEvent() {
+        SimulationEvent.Type type = null;
+        switch (eventFilter.getSelectionModel().getSelectedIndex()) {
+            case 1: type = SimulationEvent.Type.LONG_WAIT; break;
+            case 2: type = SimulationEvent.Type.NEAR_MISS; break;
+            case 3: type = SimulationEvent.Type.PREEMPTION; break;
+        }
+
+        try {
+            SimulationEvent event = reader.nextEvent((long) position, type);
+            if (event == null) {
+                log.accept("📼 No hay más eventos en la traza");
+                return;
+            }
+            setPlaying(false);
+            seek(event.getTimestamp());
+            log.accept("📼 " + event.getDescription());
+        } catch (IOException e) {
+            log.accept("⚠️ Error leyendo la traza: " + e.getMessage());
+        }
+    }
+
+    public void close() {
+        setPlaying(false);
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.accept("⚠️ Error cerrando la traza: " + e.getMessage());
+        }
+    }
+}
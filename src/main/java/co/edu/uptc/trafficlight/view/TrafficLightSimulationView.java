@@ -1,18 +1,28 @@
 package co.edu.uptc.trafficlight.view;
 
+import co.edu.uptc.trafficlight.business.MetricsTimeSeries;
+import co.edu.uptc.trafficlight.business.SignalPlanLoader;
+import co.edu.uptc.trafficlight.business.TraceReader;
+import co.edu.uptc.trafficlight.business.TraceRecorder;
 import co.edu.uptc.trafficlight.business.TrafficController;
 import co.edu.uptc.trafficlight.model.*;
 import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 import java.util.List;
 import java.util.Observable;
@@ -25,9 +35,22 @@ public class TrafficLightSimulationView implements Observer {
     private Pane intersectionPane;
     private VBox controlPanel;
     private TextArea logArea;
+    private LineChart<Number, Number> metricsChart;
+    private XYChart.Series<Number, Number> throughputSeries;
+    private XYChart.Series<Number, Number> queueSeries;
+    private XYChart.Series<Number, Number> waitP95Series;
+    private long lastChartRefresh;
+
+    private TraceRecorder traceRecorder;
+    private Button recordButton;
+    private TracePlaybackPanel playbackPanel;
+
+    private static final long CHART_WINDOW_MS = 120_000;
 
     private Map<String, Circle[]> trafficLightElements;
     private Label[] vehicleCountLabels;
+    private Label[] dischargeLabels;
+    private Label spillbackLabel;
 
     // Estadísticas
     private Label totalVehiclesLabel;
@@ -35,6 +58,9 @@ public class TrafficLightSimulationView implements Observer {
     private Label accidentsPreventedLabel;
     private Label currentInIntersectionLabel;
     private Label maxConcurrentLabel;
+    private Label preemptionLabel;
+    private Label nearMissLabel;
+    private Label priorityWaitLabel;
 
     public TrafficLightSimulationView(Stage primaryStage) {
         this.primaryStage = primaryStage;
@@ -54,12 +80,20 @@ public class TrafficLightSimulationView implements Observer {
         root.setRight(controlPanel);
 
         createSafetyLogPanel();
-        root.setBottom(logArea);
+        createMetricsChart();
+        HBox bottomPanel = new HBox(logArea, metricsChart);
+        HBox.setHgrow(logArea, Priority.ALWAYS);
+        root.setBottom(bottomPanel);
 
         Scene scene = new Scene(root, 1200, 800);
 
         primaryStage.setTitle("Simulación de Semáforo");
         primaryStage.setScene(scene);
+        primaryStage.setOnCloseRequest(e -> {
+            if (traceRecorder != null) stopRecording();
+            if (playbackPanel != null) playbackPanel.close();
+            controller.shutdown();
+        });
         primaryStage.show();
     }
 
@@ -146,11 +180,62 @@ public class TrafficLightSimulationView implements Observer {
         styleButton(stopButton, "#e74c3c");
         styleButton(resetButton, "#f39c12");
 
+        recordButton = new Button("⏺️ Grabar traza");
+        Button playbackButton = new Button("📂 Reproducir traza");
+        recordButton.setOnAction(e -> toggleRecording());
+        playbackButton.setOnAction(e -> openPlayback());
+        styleButton(recordButton, "#8e44ad");
+        styleButton(playbackButton, "#2980b9");
+
+        VBox planBox = createSignalPlanPanel();
         VBox safetyStatsBox = createSafetyStatsPanel();
         VBox trafficStatsBox = createTrafficStatsPanel();
 
         controlPanel.getChildren().addAll(titleLabel, startButton, stopButton, resetButton,
-                safetyStatsBox, trafficStatsBox);
+                recordButton, playbackButton, planBox, safetyStatsBox, trafficStatsBox);
+    }
+
+    private VBox createSignalPlanPanel() {
+        VBox planBox = new VBox(8);
+        planBox.setStyle("-fx-background-color: #2c3e50; -fx-padding: 15px; -fx-background-radius: 10px;");
+
+        Label planTitle = new Label("📋 Plan Semafórico");
+        planTitle.setTextFill(Color.WHITE);
+        planTitle.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
+
+        ComboBox<String> planSelector = new ComboBox<>();
+        planSelector.getItems().addAll(SignalPlanLoader.BUNDLED_PLANS);
+        planSelector.setPromptText(controller.getSignalPlan().getName());
+        planSelector.setOnAction(e -> {
+            String name = planSelector.getValue();
+            if (name != null) applySignalPlan(SignalPlanLoader.loadBundled(name));
+        });
+
+        Button loadPlanButton = new Button("📂 Cargar plan...");
+        loadPlanButton.setOnAction(e -> loadSignalPlanFromFile());
+
+        planBox.getChildren().addAll(planTitle, planSelector, loadPlanButton);
+        return planBox;
+    }
+
+    private void loadSignalPlanFromFile() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Cargar plan semafórico");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Planes (*.properties)", "*.properties"));
+        File file = chooser.showOpenDialog(primaryStage);
+        if (file == null) return;
+
+        try {
+            applySignalPlan(SignalPlanLoader.load(file.toPath()));
+        } catch (IOException | IllegalArgumentException ex) {
+            logArea.appendText("⚠️ No se pudo cargar el plan: " + ex.getMessage() + "\n");
+        }
+    }
+
+    private void applySignalPlan(SignalPlan plan) {
+        controller.setSignalPlan(plan);
+        logArea.appendText("📋 Plan seleccionado: " + plan.getName()
+                + " (ciclo " + plan.getCycleLengthMs() / 1000.0 + "s)\n");
     }
 
     private VBox createSafetyStatsPanel() {
@@ -166,9 +251,12 @@ public class TrafficLightSimulationView implements Observer {
         accidentsPreventedLabel = new Label("Accidentes prevenidos: 0");
         currentInIntersectionLabel = new Label("En intersección: 0/2");
         maxConcurrentLabel = new Label("Máximo concurrente: 0");
+        preemptionLabel = new Label("Preemptions: 0");
+        nearMissLabel = new Label("Casi-colisiones: 0");
+        priorityWaitLabel = new Label("Espera 🚑/🚌/🚗: 0/0/0 ms");
 
         Label[] statLabels = {totalVehiclesLabel, safeCrossingsLabel, accidentsPreventedLabel,
-                currentInIntersectionLabel, maxConcurrentLabel};
+                currentInIntersectionLabel, maxConcurrentLabel, nearMissLabel, preemptionLabel, priorityWaitLabel};
 
         for (Label label : statLabels) {
             label.setTextFill(Color.LIGHTGRAY);
@@ -181,7 +269,7 @@ public class TrafficLightSimulationView implements Observer {
 
         safetyBox.getChildren().addAll(safetyTitle, totalVehiclesLabel, safeCrossingsLabel,
                 accidentsPreventedLabel, currentInIntersectionLabel,
-                maxConcurrentLabel, safetyIndicator);
+                maxConcurrentLabel, nearMissLabel, preemptionLabel, priorityWaitLabel, safetyIndicator);
         return safetyBox;
     }
 
@@ -194,16 +282,27 @@ public class TrafficLightSimulationView implements Observer {
         trafficTitle.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
 
         vehicleCountLabels = new Label[4];
+        dischargeLabels = new Label[4];
         String[] directions = {"NORTE", "SUR", "ESTE", "OESTE"};
 
         for (int i = 0; i < directions.length; i++) {
-            vehicleCountLabels[i] = new Label(directions[i] + ": 0 esperando");
+            vehicleCountLabels[i] = new Label(directions[i] + ": 0 en cola");
             vehicleCountLabels[i].setTextFill(Color.LIGHTGRAY);
             vehicleCountLabels[i].setStyle("-fx-font-family: 'Courier New';");
+            dischargeLabels[i] = new Label("  S/L/R: 0/0/0 salidas");
+            dischargeLabels[i].setTextFill(Color.GRAY);
+            dischargeLabels[i].setStyle("-fx-font-family: 'Courier New'; -fx-font-size: 10px;");
         }
 
+        spillbackLabel = new Label("Spillback: 0");
+        spillbackLabel.setTextFill(Color.LIGHTGRAY);
+        spillbackLabel.setStyle("-fx-font-family: 'Courier New';");
+
         trafficBox.getChildren().add(trafficTitle);
-        for (Label label : vehicleCountLabels) trafficBox.getChildren().add(label);
+        for (int i = 0; i < vehicleCountLabels.length; i++) {
+            trafficBox.getChildren().addAll(vehicleCountLabels[i], dischargeLabels[i]);
+        }
+        trafficBox.getChildren().add(spillbackLabel);
 
         return trafficBox;
     }
@@ -227,7 +326,139 @@ public class TrafficLightSimulationView implements Observer {
         logArea.appendText("📋 Presione 'Iniciar Simulación' para comenzar\n");
     }
 
+    private void createMetricsChart() {
+        NumberAxis timeAxis = new NumberAxis();
+        timeAxis.setLabel("s");
+        timeAxis.setForceZeroInRange(false);
+        NumberAxis valueAxis = new NumberAxis();
+
+        metricsChart = new LineChart<>(timeAxis, valueAxis);
+        metricsChart.setAnimations(false);
+        metricsChart.setCreateSymbols(false);
+        metricsChart.setPrefSize(500, 150);
+        metricsChart.setStyle("-fx-background-color: #2c3e50;");
+
+        throughputSeries = new XYChart.Series<>();
+        throughputSeries.setName("Cruces/min");
+        queueSeries = new XYChart.Series<>();
+        queueSeries.setName("En cola");
+        waitP95Series = new XYChart.Series<>();
+        waitP95Series.setName("Espera p95 (s)");
+        metricsChart.getData().addAll(throughputSeries, queueSeries, waitP95Series);
+    }
+
+    /** Redibuja la gráfica a partir de la serie del controlador, como máximo una vez por muestra. */
+    private void refreshMetricsChart() {
+        long now = System.currentTimeMillis();
+        if (now - lastChartRefresh < MetricsTimeSeries.SAMPLE_INTERVAL_MS) return;
+        lastChartRefresh = now;
+
+        List<XYChart.Data<Number, Number>> throughput = new java.util.ArrayList<>();
+        List<XYChart.Data<Number, Number>> queue = new java.util.ArrayList<>();
+        List<XYChart.Data<Number, Number>> wait = new java.util.ArrayList<>();
+        long simulationNow = controller.getClock().now();
+        for (MetricsTimeSeries.Point p : controller.getMetricsTimeSeries().getPoints(CHART_WINDOW_MS)) {
+            long t = (p.getTimestamp() - simulationNow) / 1000;
+            throughput.add(new XYChart.Data<>(t, p.getThroughputPerMinute()));
+            queue.add(new XYChart.Data<>(t, p.getAverageQueue()));
+            wait.add(new XYChart.Data<>(t, p.getWaitP95Ms() / 1000.0));
+        }
+        throughputSeries.getData().setAll(throughput);
+        queueSeries.getData().setAll(queue);
+        waitP95Series.getData().setAll(wait);
+    }
+
+    private void toggleRecording() {
+        if (traceRecorder != null) {
+            stopRecording();
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Grabar traza");
+        chooser.setInitialFileName("simulacion.trace");
+        File file = chooser.showSaveDialog(primaryStage);
+        if (file == null) return;
+
+        try {
+            traceRecorder = new TraceRecorder(controller, file.toPath());
+            traceRecorder.start();
+            recordButton.setText("⏹️ Detener grabación");
+            logArea.appendText("⏺️ Grabando traza en " + file.getName() + "\n");
+        } catch (IOException ex) {
+            traceRecorder = null;
+            logArea.appendText("⚠️ No se pudo crear la traza: " + ex.getMessage() + "\n");
+        }
+    }
+
+    private void stopRecording() {
+        try {
+            traceRecorder.stop();
+            logArea.appendText("💾 Traza guardada\n");
+        } catch (IOException ex) {
+            logArea.appendText("⚠️ Error cerrando la traza: " + ex.getMessage() + "\n");
+        }
+        traceRecorder = null;
+        recordButton.setText("⏺️ Grabar traza");
+    }
+
+    /** Modo reproducción: la vista deja de observar al controlador y dibuja frames de la traza. */
+    private void openPlayback() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Reproducir traza");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Trazas (*.trace)", "*.trace"));
+        File file = chooser.showOpenDialog(primaryStage);
+        if (file == null) return;
+
+        TraceReader reader;
+        try {
+            reader = new TraceReader(file.toPath());
+        } catch (IOException ex) {
+            logArea.appendText("⚠️ No se pudo abrir la traza: " + ex.getMessage() + "\n");
+            return;
+        }
+
+        if (traceRecorder != null) stopRecording();
+        controller.stopSimulation();
+        controller.deleteObserver(this);
+        if (playbackPanel != null) playbackPanel.close();
+
+        playbackPanel = new TracePlaybackPanel(reader, this::renderFrame,
+                message -> logArea.appendText(message + "\n"), this::closePlayback);
+        root.setTop(playbackPanel);
+        logArea.appendText("📼 Reproduciendo " + file.getName() + "\n");
+    }
+
+    private void closePlayback() {
+        root.setTop(null);
+        playbackPanel = null;
+        controller.addObserver(this);
+        update(controller, null);
+        logArea.appendText("📼 Reproducción cerrada\n");
+    }
+
+    private void renderFrame(TraceFrame frame) {
+        for (int i = 0; i < TraceFrame.DIRECTIONS.length; i++) {
+            showLightState(TraceFrame.DIRECTIONS[i], frame.getLight(i));
+        }
+
+        intersectionPane.getChildren().removeIf(node -> node.getUserData() instanceof Integer);
+        for (TraceFrame.VehicleSnapshot v : frame.getVehicles()) {
+            drawVehicle(v.getId(), v.getX(), v.getY(), v.getVehicleType(), v.getState(), v.getMovementType());
+        }
+
+        totalVehiclesLabel.setText("Total generados: " + frame.getTotalGenerated());
+        safeCrossingsLabel.setText("Cruces seguros: " + frame.getCrossedSafely());
+        accidentsPreventedLabel.setText("Accidentes prevenidos: " + frame.getAccidentsPrevented());
+        currentInIntersectionLabel.setText("En intersección: " + frame.getInIntersection() + "/2");
+        nearMissLabel.setText("Casi-colisiones: " + frame.getNearMisses());
+    }
+
     private void startSimulation() {
+        if (playbackPanel != null) {
+            playbackPanel.close();
+            closePlayback();
+        }
         controller.startSimulation();
         logArea.appendText("▶️ Simulación iniciada - Monitoreando seguridad...\n");
     }
@@ -238,9 +469,7 @@ public class TrafficLightSimulationView implements Observer {
     }
 
     private void resetSimulation() {
-        controller.stopSimulation();
-        controller = new TrafficController();
-        controller.addObserver(this);
+        controller.reset();
 
         intersectionPane.getChildren().removeIf(node -> node.getUserData() instanceof Integer);
 
@@ -251,29 +480,35 @@ public class TrafficLightSimulationView implements Observer {
     @Override
     public void update(Observable o, Object arg) {
         Platform.runLater(() -> {
+            if (arg instanceof NearMissEvent || arg instanceof SimulationEvent) {
+                logArea.appendText("🚨 " + arg + "\n");
+            }
             updateTrafficLights();
             updateVehicleDisplay();
             updateStatistics();
+            refreshMetricsChart();
         });
     }
 
     private void updateTrafficLights() {
         if (trafficLightElements == null) return;
         for (Map.Entry<String, TrafficLight> entry : controller.getTrafficLights().entrySet()) {
-            String direction = entry.getKey();
-            TrafficLight light = entry.getValue();
-            Circle[] circles = trafficLightElements.get(direction);
-
-            // Reset
-            circles[0].setFill(Color.DARKRED);
-            circles[1].setFill(Color.DARKGOLDENROD);
-            circles[2].setFill(Color.DARKGREEN);
-
-            switch (light.getCurrentState()) {
-                case RED: circles[0].setFill(Color.RED); break;
-                case YELLOW: circles[1].setFill(Color.YELLOW); break;
-                case GREEN: circles[2].setFill(Color.LIME); break;
-            }
+            showLightState(entry.getKey(), entry.getValue().getCurrentState());
+        }
+    }
+
+    private void showLightState(String direction, TrafficLightState state) {
+        Circle[] circles = trafficLightElements.get(direction);
+
+        // Reset
+        circles[0].setFill(Color.DARKRED);
+        circles[1].setFill(Color.DARKGOLDENROD);
+        circles[2].setFill(Color.DARKGREEN);
+
+        switch (state) {
+            case RED: circles[0].setFill(Color.RED); break;
+            case YELLOW: circles[1].setFill(Color.YELLOW); break;
+            case GREEN: circles[2].setFill(Color.LIME); break;
         }
     }
 
@@ -282,27 +517,31 @@ public class TrafficLightSimulationView implements Observer {
 
         List<Vehicle> vehicles = controller.getActiveVehicles();
         for (Vehicle v : vehicles) {
-            if (v.getState() == Vehicle.VehicleState.WAITING) continue;
-
-            Text vehicleIcon = new Text(v.getX(), v.getY(), v.getVehicleType());
-            vehicleIcon.setFont(Font.font(20));
-            vehicleIcon.setUserData(v.getId());
+            drawVehicle(v.getId(), v.getX(), v.getY(), v.getVehicleType(), v.getState(), v.getMovementType());
+        }
+    }
 
-            switch (v.getState()) {
-                case APPROACHING: vehicleIcon.setFill(Color.YELLOW); break;
-                case CROSSING: vehicleIcon.setFill(Color.RED); break;
-                case CROSSED: vehicleIcon.setFill(Color.LIGHTGREEN); break;
-            }
+    private void drawVehicle(int id, double x, double y, String type, Vehicle.VehicleState state,
+                             Vehicle.MovementType movementType) {
+        Text vehicleIcon = new Text(x, y, type);
+        vehicleIcon.setFont(Font.font(20));
+        vehicleIcon.setUserData(id);
+
+        switch (state) {
+            case WAITING: vehicleIcon.setFill(Color.LIGHTGRAY); break;
+            case APPROACHING: vehicleIcon.setFill(Color.YELLOW); break;
+            case CROSSING: vehicleIcon.setFill(Color.RED); break;
+            case CROSSED: vehicleIcon.setFill(Color.LIGHTGREEN); break;
+        }
 
-            intersectionPane.getChildren().add(vehicleIcon);
+        intersectionPane.getChildren().add(vehicleIcon);
 
-            String m = v.getMovementType().toString().substring(0,1);
-            Text movementLabel = new Text(v.getX(), v.getY() - 12, m);
-            movementLabel.setFont(Font.font(10));
-            movementLabel.setFill(Color.WHITE);
-            movementLabel.setUserData(v.getId());
-            intersectionPane.getChildren().add(movementLabel);
-        }
+        String m = movementType.toString().substring(0,1);
+        Text movementLabel = new Text(x, y - 12, m);
+        movementLabel.setFont(Font.font(10));
+        movementLabel.setFill(Color.WHITE);
+        movementLabel.setUserData(id);
+        intersectionPane.getChildren().add(movementLabel);
     }
 
     private void updateStatistics() {
@@ -311,14 +550,36 @@ public class TrafficLightSimulationView implements Observer {
         accidentsPreventedLabel.setText("Accidentes prevenidos: " + controller.getAccidentsPrevented());
         currentInIntersectionLabel.setText("En intersección: " + controller.getCurrentVehiclesInIntersection() + "/2");
         maxConcurrentLabel.setText("Máximo concurrente: " + controller.getMaxConcurrentInIntersection());
+        nearMissLabel.setText("Casi-colisiones: " + controller.getNearMisses());
+        preemptionLabel.setText("Preemptions: " + controller.getPreemptionCount()
+                + " (" + controller.getTotalPreemptionMs() / 1000 + "s)");
+        priorityWaitLabel.setText(String.format("Espera 🚑/🚌/🚗: %.0f/%.0f/%.0f ms",
+                controller.getWaitStatistics(Vehicle.PriorityClass.EMERGENCY).getAverageMs(),
+                controller.getWaitStatistics(Vehicle.PriorityClass.BUS).getAverageMs(),
+                controller.getWaitStatistics(Vehicle.PriorityClass.NORMAL).getAverageMs()));
 
         String[] directions = {"NORTH", "SOUTH", "EAST", "WEST"};
         for (int i = 0; i < directions.length; i++) {
             String dir = directions[i];
-            long waitingCount = controller.getActiveVehicles().stream()
-                    .filter(v -> v.getDirection().equals(dir) && v.getState() == Vehicle.VehicleState.WAITING)
-                    .count();
-            vehicleCountLabels[i].setText(dir + ": " + waitingCount + " esperando");
+            vehicleCountLabels[i].setText(dir + ": " + controller.getQueueLength(dir) + " en cola");
+            dischargeLabels[i].setText(dischargeText(dir));
+        }
+        spillbackLabel.setText("Spillback: " + controller.getSpillbackEvents());
+    }
+
+    /** Salidas e intervalo medido entre descargas con cola de cada carril del acceso. */
+    private String dischargeText(String direction) {
+        StringBuilder discharged = new StringBuilder();
+        StringBuilder headways = new StringBuilder();
+        for (Vehicle.MovementType mt : Vehicle.MovementType.values()) {
+            if (discharged.length() > 0) {
+                discharged.append('/');
+                headways.append('/');
+            }
+            discharged.append(controller.getDischargedCount(direction, mt));
+            double headway = controller.getMeasuredHeadwayMs(direction, mt);
+            headways.append(headway == 0 ? "-" : String.format("%.1f", headway / 1000));
         }
+        return "  S/L/R: " + discharged + " salidas, h " + headways + " s";
     }
 }
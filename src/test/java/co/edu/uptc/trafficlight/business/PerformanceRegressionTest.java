@@ -0,0 +1,353 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.DemandProfile;
+import co.edu.uptc.trafficlight.model.Vehicle;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Regresión de desempeño: corre escenarios de demanda fijos (semilla fija, tiempo
+ * acelerado, sin interfaz) y compara cada uno contra su presupuesto de cruces por
+ * minuto y espera p99. Ninguna casi-colisión y nunca más de la capacidad dentro de la
+ * intersección son fallas siempre. Los escenarios base corren con {@code mvn verify};
+ * los marcados {@code perf} sólo con {@code mvn -Pperf verify}. Los resultados quedan en
+ * target/perf-results.json.
+ *
+ * La semilla fija las llegadas pero no el orden de los hilos, así que cada escenario corre
+ * varias repeticiones a la vez y los presupuestos se comparan contra la mediana. Los
+ * percentiles se calculan sobre las esperas exactas de la ventana medida, no sobre el
+ * histograma de {@link MetricsTimeSeries}.
+ */
+class PerformanceRegressionTest {
+    private static final double TIME_SCALE = 10;
+    private static final long WARMUP_MS = 60_000;
+    private static final long MEASURE_MS = 600_000;
+    private static final int REPETITIONS = 3;
+    private static final String DEFAULT_OUTPUT = "target/perf-results.json";
+    private static final int MAX_VEHICLES_IN_INTERSECTION = 2;
+    private static final String[] DIRECTIONS = {"NORTH", "SOUTH", "EAST", "WEST"};
+
+    private static final List<Result> RESULTS = Collections.synchronizedList(new ArrayList<>());
+
+    /*
+     * Presupuestos medidos en tres corridas completas (nueve repeticiones por escenario):
+     * el piso es el 90% de la menor mediana de throughput y el tope de p99 la mayor mediana
+     * de p99 más un 20%. El throughput varía menos del 4% entre corridas; el p99 de los
+     * escenarios saturados es la edad de la cola y varía hasta un 50%, así que en ellos la
+     * regresión la detecta sobre todo el piso de throughput.
+     */
+
+    @Test
+    void light() throws InterruptedException {
+        check(new Scenario("light", DemandProfile.uniform(3, 0.6, 0.2), 1, 10.8, 24_000));
+    }
+
+    @Test
+    void defaultDemand() throws InterruptedException {
+        check(new Scenario("default", DemandProfile.DEFAULT, 2, 21.0, 69_000));
+    }
+
+    @Test
+    void saturated() throws InterruptedException {
+        check(new Scenario("saturated", DemandProfile.uniform(10, 0.6, 0.2), 3, 24.4, 282_000));
+    }
+
+    @Test
+    @Tag("perf")
+    void oversaturated() throws InterruptedException {
+        check(new Scenario("oversaturated", DemandProfile.uniform(16, 0.6, 0.2), 4, 24.7, 305_000));
+    }
+
+    @Test
+    @Tag("perf")
+    void leftHeavy() throws InterruptedException {
+        check(new Scenario("left-heavy", DemandProfile.uniform(10, 0.4, 0.4), 5, 23.5, 313_000));
+    }
+
+    @Test
+    @Tag("perf")
+    void straightOnly() throws InterruptedException {
+        check(new Scenario("straight-only", DemandProfile.uniform(10, 1.0, 0.0), 6, 23.9, 130_000));
+    }
+
+    @Test
+    @Tag("perf")
+    void northSouthOnly() throws InterruptedException {
+        check(new Scenario("north-south-only", approaches(10, "NORTH", "SOUTH"), 7, 13.6, 388_000));
+    }
+
+    @AfterAll
+    static void writeResults() throws IOException {
+        Path output = Paths.get(System.getProperty("perf.results", DEFAULT_OUTPUT));
+        if (output.getParent() != null) Files.createDirectories(output.getParent());
+        Files.writeString(output, toJson(RESULTS), StandardCharsets.UTF_8);
+    }
+
+    private static void check(Scenario scenario) throws InterruptedException {
+        Result result = runRepeated(scenario);
+        RESULTS.add(result);
+        System.out.println(result.summary());
+        assertTrue(result.failures.isEmpty(), result.summary());
+    }
+
+    /** Corre las repeticiones en paralelo; los hilos de la simulación casi siempre duermen. */
+    private static Result runRepeated(Scenario scenario) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(REPETITIONS);
+        List<Future<Run>> futures = new ArrayList<>();
+        for (int i = 0; i < REPETITIONS; i++) {
+            futures.add(pool.submit(() -> run(scenario)));
+        }
+        Result result = new Result(scenario);
+        try {
+            for (Future<Run> future : futures) result.runs.add(future.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falló una repetición de " + scenario.name, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        result.throughputPerMinute = median(result.runs, run -> run.throughputPerMinute);
+        result.waitP50Ms = (long) median(result.runs, run -> run.waitP50Ms);
+        result.waitP99Ms = (long) median(result.runs, run -> run.waitP99Ms);
+        for (Run run : result.runs) {
+            result.nearMisses += run.nearMisses;
+            result.maxConcurrentInIntersection = Math.max(result.maxConcurrentInIntersection, run.maxConcurrentInIntersection);
+            result.realSeconds = Math.max(result.realSeconds, run.realSeconds);
+        }
+
+        if (result.throughputPerMinute < scenario.minThroughputPerMinute) {
+            result.failures.add(String.format(Locale.ROOT, "cruces/min %.1f < %.1f",
+                    result.throughputPerMinute, scenario.minThroughputPerMinute));
+        }
+        if (result.waitP99Ms > scenario.maxWaitP99Ms) {
+            result.failures.add("espera p99 " + result.waitP99Ms + "ms > " + scenario.maxWaitP99Ms + "ms");
+        }
+        if (result.nearMisses > 0) {
+            result.failures.add(result.nearMisses + " casi-colisiones");
+        }
+        if (result.maxConcurrentInIntersection > MAX_VEHICLES_IN_INTERSECTION) {
+            result.failures.add("ocupación máxima " + result.maxConcurrentInIntersection + " > " + MAX_VEHICLES_IN_INTERSECTION);
+        }
+        return result;
+    }
+
+    private static Run run(Scenario scenario) throws InterruptedException {
+        TrafficController controller = new TrafficController();
+        controller.setTimeScale(TIME_SCALE);
+        controller.setRandomSeed(scenario.seed);
+        controller.setDemandProfile(scenario.demand);
+        controller.setVerbose(false);
+        SimulationClock clock = controller.getClock();
+        List<Long> waits = Collections.synchronizedList(new ArrayList<>());
+
+        long realStart = System.nanoTime();
+        controller.startSimulation();
+        clock.sleep(WARMUP_MS);
+        int crossedBefore = controller.getVehiclesCrossedSafely();
+        controller.setWaitListener(waits::add);
+        clock.sleep(MEASURE_MS);
+        controller.setWaitListener(null);
+
+        Run run = new Run();
+        run.throughputPerMinute = (controller.getVehiclesCrossedSafely() - crossedBefore) * 60_000.0 / MEASURE_MS;
+        run.waitP50Ms = percentile(waits, 0.50);
+        run.waitP99Ms = percentile(waits, 0.99);
+        run.waitSamples = waits.size();
+        run.nearMisses = controller.getNearMisses();
+        run.maxConcurrentInIntersection = controller.getMaxConcurrentInIntersection();
+        run.spillbackEvents = controller.getSpillbackEvents();
+        run.preemptions = controller.getPreemptionCount();
+        run.generated = controller.getTotalVehiclesGenerated();
+        for (String direction : DIRECTIONS) {
+            for (Vehicle.MovementType mt : Vehicle.MovementType.values()) {
+                run.lanes.add(new LaneResult(direction, mt, controller.getDischargedCount(direction, mt),
+                        controller.getMaxQueueLength(direction, mt), controller.getMeasuredHeadwayMs(direction, mt)));
+            }
+        }
+        controller.shutdown();
+        run.realSeconds = (System.nanoTime() - realStart) / 1e9;
+        return run;
+    }
+
+    /** Percentil por rango más cercano sobre las muestras exactas. */
+    private static long percentile(List<Long> samples, double q) {
+        List<Long> sorted;
+        synchronized (samples) { sorted = new ArrayList<>(samples); }
+        if (sorted.isEmpty()) return 0;
+        Collections.sort(sorted);
+        int rank = (int) Math.ceil(q * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private static double median(List<Run> runs, ToDoubleFunction<Run> metric) {
+        List<Run> sorted = new ArrayList<>(runs);
+        sorted.sort(Comparator.comparingDouble(metric));
+        return metric.applyAsDouble(sorted.get(sorted.size() / 2));
+    }
+
+    private static DemandProfile approaches(double vehiclesPerMinute, String... directions) {
+        Map<String, Double> rates = new HashMap<>();
+        for (String direction : directions) rates.put(direction, vehiclesPerMinute);
+        return new DemandProfile(rates, 0.6, 0.2, 0.08, 0.02);
+    }
+
+    private static String toJson(List<Result> results) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"timeScale\": ").append(TIME_SCALE)
+                .append(",\n  \"warmupMs\": ").append(WARMUP_MS)
+                .append(",\n  \"measureMs\": ").append(MEASURE_MS)
+                .append(",\n  \"repetitions\": ").append(REPETITIONS)
+                .append(",\n  \"scenarios\": [");
+        synchronized (results) {
+            for (int i = 0; i < results.size(); i++) {
+                json.append(i == 0 ? "\n" : ",\n").append(results.get(i).toJson());
+            }
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    private static class Scenario {
+        private final String name;
+        private final DemandProfile demand;
+        private final long seed;
+        private final double minThroughputPerMinute;
+        private final long maxWaitP99Ms;
+
+        Scenario(String name, DemandProfile demand, long seed, double minThroughputPerMinute, long maxWaitP99Ms) {
+            this.name = name;
+            this.demand = demand;
+            this.seed = seed;
+            this.minThroughputPerMinute = minThroughputPerMinute;
+            this.maxWaitP99Ms = maxWaitP99Ms;
+        }
+    }
+
+    /** Descarga de un carril en toda la corrida, calentamiento incluido. */
+    private static class LaneResult {
+        private final String direction;
+        private final Vehicle.MovementType movementType;
+        private final int discharged;
+        private final int maxLength;
+        private final double measuredHeadwayMs;
+
+        LaneResult(String direction, Vehicle.MovementType movementType, int discharged, int maxLength,
+                   double measuredHeadwayMs) {
+            this.direction = direction;
+            this.movementType = movementType;
+            this.discharged = discharged;
+            this.maxLength = maxLength;
+            this.measuredHeadwayMs = measuredHeadwayMs;
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"direction\": \"%s\", \"movement\": \"%s\", \"discharged\": %d,"
+                            + " \"maxQueueLength\": %d, \"measuredHeadwayMs\": %.1f}",
+                    direction, movementType, discharged, maxLength, measuredHeadwayMs);
+        }
+    }
+
+    /** Una repetición de un escenario. */
+    private static class Run {
+        private final List<LaneResult> lanes = new ArrayList<>();
+        private double throughputPerMinute;
+        private long waitP50Ms;
+        private long waitP99Ms;
+        private int waitSamples;
+        private int nearMisses;
+        private int maxConcurrentInIntersection;
+        private int spillbackEvents;
+        private int preemptions;
+        private int generated;
+        private double realSeconds;
+
+        String toJson() {
+            StringBuilder lanesJson = new StringBuilder();
+            for (LaneResult lane : lanes) {
+                lanesJson.append(lanesJson.length() == 0 ? "\n          " : ",\n          ").append(lane.toJson());
+            }
+            return String.format(Locale.ROOT,
+                    "{\"throughputPerMinute\": %.2f, \"waitP50Ms\": %d, \"waitP99Ms\": %d, \"waitSamples\": %d,"
+                            + " \"nearMisses\": %d, \"maxConcurrentInIntersection\": %d,"
+                            + " \"spillbackEvents\": %d, \"preemptions\": %d, \"generated\": %d,"
+                            + " \"realSeconds\": %.2f, \"lanes\": [%s]}",
+                    throughputPerMinute, waitP50Ms, waitP99Ms, waitSamples, nearMisses, maxConcurrentInIntersection,
+                    spillbackEvents, preemptions, generated, realSeconds, lanesJson);
+        }
+    }
+
+    /** Mediana de las repeticiones para los presupuestos; peor caso para la seguridad. */
+    private static class Result {
+        private final Scenario scenario;
+        private final List<String> failures = new ArrayList<>();
+        private final List<Run> runs = new ArrayList<>();
+        private double throughputPerMinute;
+        private long waitP50Ms;
+        private long waitP99Ms;
+        private int nearMisses;
+        private int maxConcurrentInIntersection;
+        private double realSeconds;
+
+        Result(Scenario scenario) {
+            this.scenario = scenario;
+        }
+
+        String summary() {
+            StringBuilder perRun = new StringBuilder();
+            for (Run run : runs) {
+                if (perRun.length() > 0) perRun.append(", ");
+                perRun.append(String.format(Locale.ROOT, "%.1f/%d", run.throughputPerMinute, run.waitP99Ms));
+            }
+            return String.format(Locale.ROOT,
+                    "  %s %s: %.1f cruces/min, espera p50 %dms p99 %dms (repeticiones %s), casi-colisiones %d,"
+                            + " ocupación máx %d (%.1fs)%s",
+                    failures.isEmpty() ? "✅" : "❌", scenario.name, throughputPerMinute, waitP50Ms, waitP99Ms,
+                    perRun, nearMisses, maxConcurrentInIntersection, realSeconds,
+                    failures.isEmpty() ? "" : " -> " + String.join("; ", failures));
+        }
+
+        String toJson() {
+            StringBuilder failuresJson = new StringBuilder();
+            for (String failure : failures) {
+                if (failuresJson.length() > 0) failuresJson.append(", ");
+                failuresJson.append('"').append(failure.replace("\"", "\\\"")).append('"');
+            }
+            StringBuilder runsJson = new StringBuilder();
+            for (Run run : runs) {
+                runsJson.append(runsJson.length() == 0 ? "\n        " : ",\n        ").append(run.toJson());
+            }
+            return String.format(Locale.ROOT,
+                    "    {\"name\": \"%s\", \"seed\": %d, \"passed\": %b,"
+                            + " \"throughputPerMinute\": %.2f, \"minThroughputPerMinute\": %.2f,"
+                            + " \"waitP50Ms\": %d, \"waitP99Ms\": %d, \"maxWaitP99Ms\": %d,"
+                            + " \"nearMisses\": %d, \"maxConcurrentInIntersection\": %d,"
+                            + " \"realSeconds\": %.2f, \"failures\": [%s], \"runs\": [%s]}",
+                    scenario.name, scenario.seed, failures.isEmpty(),
+                    throughputPerMinute, scenario.minThroughputPerMinute,
+                    waitP50Ms, waitP99Ms, scenario.maxWaitP99Ms,
+                    nearMisses, maxConcurrentInIntersection,
+                    realSeconds, failuresJson, runsJson);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.DemandProfile;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de ciclo de vida: inicia, detiene y reinicia el mismo controlador miles de veces
+ * con demanda alta y tiempo acelerado, de modo que cada corte encuentra vehículos en cola
+ * y cruzando la intersección. Verifica que no queden hilos de trabajo vivos, que ningún
+ * hilo de la corrida anterior notifique a los observadores después del corte, que la
+ * intersección quede vacía con todos sus cupos, que el número de hilos de la JVM no crezca
+ * y que la memoria usada se mantenga estable. Dura varios minutos: corre con
+ * {@code mvn -Pperf verify}.
+ */
+@Tag("perf")
+class ResetLoopTest {
+    private static final int CYCLES = 2000;
+    private static final long HEAP_SLACK_BYTES = 8L * 1024 * 1024;
+    private static final int THREAD_SLACK = 20;
+    private static final double TIME_SCALE = 50;
+    private static final DemandProfile HEAVY = DemandProfile.uniform(60, 0.6, 0.2);
+    /** Entre 5 y 15 s simulados por corrida: llegan vehículos y los primeros ya están cruzando. */
+    private static final int MIN_RUN_MS = 100, MAX_RUN_MS = 300;
+    private static final long LATE_NOTIFY_GRACE_MS = 20;
+    /** Mínimo de cortes que deben encontrar vehículos en cola y dentro de la intersección. */
+    private static final double MIN_QUEUED_FRACTION = 0.9, MIN_CROSSING_FRACTION = 0.5;
+    private static final int MAX_REPORTED_FAILURES = 20;
+
+    @Test
+    void stopAndResetWithVehiclesInFlight() throws InterruptedException {
+        TrafficController controller = new TrafficController();
+        controller.setTimeScale(TIME_SCALE);
+        controller.setDemandProfile(HEAVY);
+        controller.setRandomSeed(42L);
+        controller.setVerbose(false);
+        Random random = new Random(42);
+
+        AtomicInteger notifications = new AtomicInteger();
+        controller.addObserver((observable, arg) -> notifications.incrementAndGet());
+
+        List<String> failures = new ArrayList<>();
+        int cutsWithQueue = 0;
+        int cutsWhileCrossing = 0;
+        int baselineThreads = 0;
+        int maxThreads = 0;
+        long baselineHeap = 0;
+
+        for (int i = 0; i < CYCLES; i++) {
+            controller.startSimulation();
+            Thread.sleep(MIN_RUN_MS + random.nextInt(MAX_RUN_MS - MIN_RUN_MS));
+
+            if (!controller.getActiveVehicles().isEmpty()) cutsWithQueue++;
+            if (controller.getCurrentVehiclesInIntersection() > 0) cutsWhileCrossing++;
+
+            boolean joined = i % 2 == 0 ? controller.stopSimulation() : resetAndCheck(controller);
+            int afterStop = notifications.get();
+            if (!joined || controller.getActiveWorkerCount() != 0 || controller.isRunning()) {
+                failures.add("ciclo " + i + ": quedaron " + controller.getActiveWorkerCount() + " hilos activos");
+            }
+            if (!controller.getActiveVehicles().isEmpty() || controller.getCurrentVehiclesInIntersection() != 0
+                    || controller.getAvailableIntersectionPermits() != controller.getIntersectionCapacity()) {
+                failures.add("ciclo " + i + ": la intersección no quedó vacía (" + controller.getActiveVehicles().size()
+                        + " vehículos, " + controller.getAvailableIntersectionPermits() + " cupos libres)");
+            }
+            Thread.sleep(LATE_NOTIFY_GRACE_MS);
+            if (notifications.get() != afterStop) {
+                failures.add("ciclo " + i + ": " + (notifications.get() - afterStop) + " notificaciones después de detener");
+            }
+            maxThreads = Math.max(maxThreads, Thread.activeCount());
+
+            if (i == CYCLES / 10) {
+                baselineHeap = usedHeap();
+                baselineThreads = Thread.activeCount();
+            }
+        }
+        long finalHeap = usedHeap();
+        int finalThreads = Thread.activeCount();
+        controller.shutdown();
+
+        String summary = String.format("%d ciclos, cortes con cola: %d, con vehículos cruzando: %d, hilos base/máx/final:"
+                        + " %d/%d/%d, heap base/final: %d/%d KB", CYCLES, cutsWithQueue, cutsWhileCrossing,
+                baselineThreads, maxThreads, finalThreads, baselineHeap / 1024, finalHeap / 1024);
+        System.out.println(summary);
+
+        if (cutsWithQueue < CYCLES * MIN_QUEUED_FRACTION || cutsWhileCrossing < CYCLES * MIN_CROSSING_FRACTION) {
+            failures.add("la prueba no ejercitó el corte en vuelo");
+        }
+        if (finalThreads > baselineThreads + THREAD_SLACK) {
+            failures.add("los hilos crecieron de " + baselineThreads + " a " + finalThreads);
+        }
+        if (finalHeap > baselineHeap + HEAP_SLACK_BYTES) {
+            failures.add("el heap creció de " + baselineHeap / 1024 + " KB a " + finalHeap / 1024 + " KB");
+        }
+        assertTrue(failures.isEmpty(), summary + "\n" + String.join("\n",
+                failures.subList(0, Math.min(failures.size(), MAX_REPORTED_FAILURES))));
+    }
+
+    private static boolean resetAndCheck(TrafficController controller) {
+        controller.reset();
+        return controller.getTotalVehiclesGenerated() == 0 && controller.getVehiclesCrossedSafely() == 0;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,431 @@
+package co.edu.uptc.trafficlight.business;
+
+import co.edu.uptc.trafficlight.model.DemandProfile;
+import co.edu.uptc.trafficlight.model.SignalPhase;
+import co.edu.uptc.trafficlight.model.SignalPlan;
+import co.edu.uptc.trafficlight.model.Vehicle;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de estrés de los permisos de carril y de la intersección, en dos modos.
+ *
+ * Simulación completa: con demanda muy alta y tiempo acelerado, cambia de plan al azar
+ * (verdes desde 200ms, amarillos y todo-rojos que pueden ser 0) y detiene la corrida a
+ * veces con vehículos en vuelo. Verifica:
+ *  - el controlador rechaza exactamente los planes que dejan un movimiento abierto menos
+ *    de lo necesario para descargar un vehículo, y acepta el resto;
+ *  - ningún vehículo entra con su semáforo en rojo, según un observador externo: la luz
+ *    que cada vehículo lee al entrar, fuera del candado de admisión;
+ *  - nunca más de la capacidad dentro de la intersección (muestreado continuamente);
+ *  - sin permisos perdidos: vacía la intersección, todos los cupos vuelven al semáforo;
+ *  - sin vehículos atascados: con la demanda en 0, todos los generados terminan de cruzar.
+ *
+ * Contención: en la simulación cada carril es una fila FIFO y sólo su primer vehículo
+ * pide permiso, así que compiten a lo sumo doce hilos. Este modo pone miles de hilos
+ * directamente sobre {@link IntersectionAdmission} mientras otro hilo abre y cierra
+ * movimientos al azar, y verifica con contadores de secuencia externos que ninguna
+ * admisión ocurre con el movimiento cerrado, además de la capacidad y los cupos.
+ *
+ * Cualquier diseño de admisión nuevo tiene que pasar ambos modos. Al final de cada uno
+ * informa el throughput. Tarda unos minutos: corre con {@code mvn -Pperf verify}.
+ */
+@Tag("perf")
+class SemaphoreStressTest {
+    private static final int TARGET_CROSSINGS = 3000;
+    private static final long SEED = 7;
+    private static final int CONTENTION_THREADS = 2000;
+    private static final long CONTENTION_MS = 20_000;
+    private static final int MAX_REPORTED_FAILURES = 20;
+    private static final double TIME_SCALE = 40;
+    private static final long SEGMENT_MS = 60_000;
+    private static final long DRAIN_TIMEOUT_MS = 600_000;
+    private static final long MONITOR_PERIOD_NANOS = 200_000;
+    private static final long MIN_RANDOM_GREEN_MS = 200;
+    /**
+     * Entre la admisión y la lectura de la luz pasan microsegundos; una luz que se puso en
+     * rojo dentro de ese margen no es una entrada en rojo.
+     */
+    private static final long RED_ENTRY_GRACE_MS = 40;
+
+    private static final String[] DIRECTIONS = {"NORTH", "SOUTH", "EAST", "WEST"};
+    private static final DemandProfile HEAVY = DemandProfile.uniform(30, 0.5, 0.3);
+    private static final DemandProfile NONE = new DemandProfile(Collections.emptyMap(), 0.6, 0.2, 0, 0);
+
+    @Test
+    void fullSimulation() throws InterruptedException {
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        runSimulation(TARGET_CROSSINGS, SEED, failures);
+        assertNoFailures(failures);
+    }
+
+    @Test
+    void contention() throws InterruptedException {
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        runContention(CONTENTION_THREADS, CONTENTION_MS, SEED, failures);
+        assertNoFailures(failures);
+    }
+
+    private static void assertNoFailures(List<String> failures) {
+        synchronized (failures) {
+            assertTrue(failures.isEmpty(), failures.size() + " fallas:\n"
+                    + String.join("\n", failures.subList(0, Math.min(failures.size(), MAX_REPORTED_FAILURES))));
+        }
+    }
+
+    private static void runSimulation(int targetCrossings, long seed, List<String> failures) throws InterruptedException {
+        Random random = new Random(seed);
+        TrafficController controller = new TrafficController();
+        controller.setTimeScale(TIME_SCALE);
+        controller.setRandomSeed(seed);
+        controller.setVerbose(false);
+        SimulationClock clock = controller.getClock();
+        int capacity = controller.getIntersectionCapacity();
+
+        AtomicInteger maxSampledInside = new AtomicInteger(0);
+        AtomicInteger redEntries = new AtomicInteger(0);
+        AtomicInteger observedEntries = new AtomicInteger(0);
+        Thread monitor = new Thread(() -> {
+            Set<Integer> seen = new HashSet<>();
+            while (!Thread.currentThread().isInterrupted()) {
+                int inside = controller.getCurrentVehiclesInIntersection();
+                if (inside > maxSampledInside.get()) maxSampledInside.set(inside);
+                for (Vehicle v : controller.getActiveVehicles()) {
+                    long enteredAt = v.getEnteredAt();
+                    if (enteredAt < 0 || !seen.add(v.getId())) continue;
+                    observedEntries.incrementAndGet();
+                    long redSince = v.getEntryRedSince();
+                    if (redSince >= 0 && enteredAt - redSince > RED_ENTRY_GRACE_MS) {
+                        redEntries.incrementAndGet();
+                        failures.add("vehículo " + v.getId() + " (" + v.getDirection() + " " + v.getMovementType()
+                                + ") entró con el semáforo en rojo desde hacía " + (enteredAt - redSince) + "ms");
+                    }
+                }
+                LockSupport.parkNanos(MONITOR_PERIOD_NANOS);
+            }
+        }, "StressMonitor");
+        monitor.setDaemon(true);
+        monitor.start();
+
+        int segments = 0;
+        int planSwaps = 0;
+        int[] rejectedPlans = {0};
+        int abruptStops = 0;
+        int pendingAfterStops = 0;
+        long simulatedMs = 0;
+        long realStart = System.nanoTime();
+        try {
+            while (controller.getVehiclesCrossedSafely() < targetCrossings) {
+                swapPlan(controller, random, "Estrés " + segments, rejectedPlans, failures);
+                controller.setDemandProfile(HEAVY);
+                long segmentStart = clock.now();
+                controller.startSimulation();
+
+                while (clock.now() - segmentStart < SEGMENT_MS) {
+                    clock.sleep(500 + random.nextInt(4500));
+                    if (random.nextInt(3) == 0) {
+                        swapPlan(controller, random, "Estrés " + segments + "." + planSwaps, rejectedPlans, failures);
+                        planSwaps++;
+                    }
+                }
+
+                // segmentos pares se vacían y se auditan; los impares se cortan con vehículos en vuelo
+                if (segments % 2 == 0) {
+                    controller.setDemandProfile(NONE);
+                    long drainStart = clock.now();
+                    while (!controller.getActiveVehicles().isEmpty() && clock.now() - drainStart < DRAIN_TIMEOUT_MS) {
+                        clock.sleep(200);
+                    }
+                    int stuck = controller.getActiveVehicles().size();
+                    if (stuck > 0) {
+                        failures.add("segmento " + segments + ": " + stuck + " vehículos atascados");
+                    }
+                    int lost = controller.getTotalVehiclesGenerated() - controller.getVehiclesCrossedSafely() - pendingAfterStops;
+                    if (stuck == 0 && lost != 0) {
+                        failures.add("segmento " + segments + ": " + lost + " vehículos generados que nunca cruzaron");
+                    }
+                    int permits = controller.getAvailableIntersectionPermits();
+                    if (stuck == 0 && permits != capacity) {
+                        failures.add("segmento " + segments + ": " + permits + " cupos libres de " + capacity + " en la intersección vacía");
+                    }
+                } else {
+                    abruptStops++;
+                }
+
+                simulatedMs += clock.now() - segmentStart;
+                boolean joined = controller.stopSimulation();
+                if (!joined || controller.getActiveWorkerCount() != 0) {
+                    failures.add("segmento " + segments + ": " + controller.getActiveWorkerCount() + " hilos sin terminar al detener");
+                }
+                pendingAfterStops = controller.getTotalVehiclesGenerated() - controller.getVehiclesCrossedSafely();
+                segments++;
+            }
+        } finally {
+            monitor.interrupt();
+        }
+        monitor.join();
+        double realSeconds = (System.nanoTime() - realStart) / 1e9;
+
+        int maxInside = Math.max(controller.getMaxConcurrentInIntersection(), maxSampledInside.get());
+        if (maxInside > capacity) {
+            failures.add("ocupación máxima " + maxInside + " > " + capacity);
+        }
+        int crossed = controller.getVehiclesCrossedSafely();
+        if (observedEntries.get() < crossed / 2) {
+            failures.add("el observador sólo vio " + observedEntries.get() + " entradas de " + crossed + " cruces");
+        }
+        controller.shutdown();
+
+        System.out.println("Simulación completa:");
+        System.out.printf("  Segmentos: %d (%d cortes con vehículos en vuelo), cambios de plan: %d, planes rechazados: %d, preemptions: %d%n",
+                segments, abruptStops, planSwaps + segments, rejectedPlans[0], controller.getPreemptionCount());
+        System.out.printf("  Cruces: %d en %.1f min simulados / %.1fs reales -> %.1f cruces/min simulados, %.1f cruces/s reales%n",
+                crossed, simulatedMs / 60_000.0, realSeconds, crossed * 60_000.0 / simulatedMs, crossed / realSeconds);
+        System.out.printf("  Ocupación máxima: %d de %d, entradas observadas: %d, entradas en rojo: %d%n",
+                maxInside, capacity, observedEntries.get(), redEntries.get());
+    }
+
+    /**
+     * Sortea planes hasta que el controlador acepta uno. Cada rechazo tiene que ser un plan
+     * que no alcanza a descargar un vehículo en alguna fase, y cada aceptación uno que sí.
+     */
+    private static void swapPlan(TrafficController controller, Random random, String name,
+                                 int[] rejectedPlans, List<String> failures) {
+        while (true) {
+            SignalPlan plan = randomPlan(random, name);
+            // los planes sorteados no repiten movimiento en fases seguidas: cada ventana es verde + amarillo
+            boolean dischargeable = true;
+            for (SignalPhase phase : plan.getPhases()) {
+                if (phase.getGreenMs() + phase.getYellowMs() < TrafficController.MIN_GREEN_WINDOW_MS) {
+                    dischargeable = false;
+                }
+            }
+            try {
+                controller.setSignalPlan(plan);
+                if (!dischargeable) failures.add("se aceptó un plan que no descarga: " + describe(plan));
+                return;
+            } catch (IllegalArgumentException e) {
+                rejectedPlans[0]++;
+                if (dischargeable) failures.add("se rechazó un plan válido: " + describe(plan) + " (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    private static String describe(SignalPlan plan) {
+        StringBuilder text = new StringBuilder(plan.getName());
+        for (SignalPhase phase : plan.getPhases()) {
+            text.append(' ').append(phase.getName()).append('=').append(phase.getGreenMs())
+                    .append('/').append(phase.getYellowMs()).append('/').append(phase.getAllRedMs());
+        }
+        return text.toString();
+    }
+
+    /** Plan de dos o cuatro fases que sirve todos los movimientos, con tiempos y permisos al azar. */
+    private static SignalPlan randomPlan(Random random, String name) {
+        List<SignalPhase> phases = new ArrayList<>();
+        if (random.nextBoolean()) {
+            phases.add(randomPhase(random, "NS", all("NORTH", "SOUTH", random)));
+            phases.add(randomPhase(random, "EW", all("EAST", "WEST", random)));
+        } else {
+            phases.add(randomPhase(random, "NS_LEFT", only(Vehicle.MovementType.LEFT, random, "NORTH", "SOUTH")));
+            phases.add(randomPhase(random, "NS", allButLeft(random, "NORTH", "SOUTH")));
+            phases.add(randomPhase(random, "EW_LEFT", only(Vehicle.MovementType.LEFT, random, "EAST", "WEST")));
+            phases.add(randomPhase(random, "EW", allButLeft(random, "EAST", "WEST")));
+        }
+        return new SignalPlan(name, phases);
+    }
+
+    private static SignalPhase randomPhase(Random random, String name, Map<String, Map<Vehicle.MovementType, Integer>> permits) {
+        long green = MIN_RANDOM_GREEN_MS + random.nextInt(3500);
+        long yellow = random.nextInt(4) == 0 ? 0 : random.nextInt(1000);
+        long allRed = random.nextInt(3) == 0 ? 0 : random.nextInt(500);
+        return new SignalPhase(name, permits, green, yellow, allRed);
+    }
+
+    private static Map<String, Map<Vehicle.MovementType, Integer>> all(String first, String second, Random random) {
+        Map<String, Map<Vehicle.MovementType, Integer>> permits = new LinkedHashMap<>();
+        for (String direction : new String[]{first, second}) {
+            Map<Vehicle.MovementType, Integer> movements = new EnumMap<>(Vehicle.MovementType.class);
+            for (Vehicle.MovementType mt : Vehicle.MovementType.values()) movements.put(mt, 1 + random.nextInt(3));
+            permits.put(direction, movements);
+        }
+        return permits;
+    }
+
+    private static Map<String, Map<Vehicle.MovementType, Integer>> only(Vehicle.MovementType movementType, Random random,
+                                                                       String... directions) {
+        Map<String, Map<Vehicle.MovementType, Integer>> permits = new HashMap<>();
+        for (String direction : directions) {
+            Map<Vehicle.MovementType, Integer> movements = new EnumMap<>(Vehicle.MovementType.class);
+            movements.put(movementType, 1 + random.nextInt(3));
+            permits.put(direction, movements);
+        }
+        return permits;
+    }
+
+    private static Map<String, Map<Vehicle.MovementType, Integer>> allButLeft(Random random, String... directions) {
+        Map<String, Map<Vehicle.MovementType, Integer>> permits = new HashMap<>();
+        for (String direction : directions) {
+            Map<Vehicle.MovementType, Integer> movements = new EnumMap<>(Vehicle.MovementType.class);
+            movements.put(Vehicle.MovementType.STRAIGHT, 1 + random.nextInt(3));
+            movements.put(Vehicle.MovementType.RIGHT, 1 + random.nextInt(3));
+            permits.put(direction, movements);
+        }
+        return permits;
+    }
+
+    /**
+     * Miles de hilos sobre el protocolo de admisión. Cada movimiento tiene un contador de
+     * secuencia que sólo mueve el hilo de fases, por fuera del candado: par = cerrado y
+     * confirmado (se incrementa después de cerrar), impar = abierto o abriéndose (se
+     * incrementa antes de abrir). Si un hilo lee el mismo valor par antes y después de
+     * admit, todo admit ocurrió con el movimiento cerrado y no debía admitirlo.
+     */
+    private static void runContention(int threads, long durationMs, long seed, List<String> failures) throws InterruptedException {
+        int capacity = new TrafficController().getIntersectionCapacity();
+        IntersectionAdmission admission = new IntersectionAdmission(DIRECTIONS, capacity);
+        int lanes = DIRECTIONS.length * Vehicle.MovementType.values().length;
+        AtomicLongArray sequence = new AtomicLongArray(lanes);
+
+        AtomicLong admitted = new AtomicLong();
+        AtomicLong closed = new AtomicLong();
+        AtomicLong yielded = new AtomicLong();
+        AtomicInteger closedAdmissions = new AtomicInteger();
+        AtomicInteger overCapacity = new AtomicInteger();
+        AtomicInteger concurrentInside = new AtomicInteger();
+        AtomicInteger maxWaiting = new AtomicInteger();
+        AtomicLong phaseChanges = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean(false);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Vehicle.MovementType[] movements = Vehicle.MovementType.values();
+                Vehicle[] vehicles = new Vehicle[lanes];
+                for (int lane = 0; lane < lanes; lane++) {
+                    vehicles[lane] = new Vehicle(DIRECTIONS[lane / movements.length], movements[lane % movements.length],
+                            Vehicle.PriorityClass.NORMAL, null, new Random(lane));
+                }
+                try {
+                    while (!stop.get()) {
+                        int lane = random.nextInt(lanes);
+                        Vehicle vehicle = vehicles[lane];
+                        admission.acquirePermit(vehicle.getDirection(), vehicle.getMovementType());
+                        while (!admission.tryAcquireSlot(1_000_000)) {
+                            if (stop.get()) return;
+                        }
+                        long before = sequence.get(lane);
+                        IntersectionAdmission.Result result = admission.admit(vehicle);
+                        long after = sequence.get(lane);
+                        if (result != IntersectionAdmission.Result.ADMITTED) {
+                            admission.releaseSlot();
+                            (result == IntersectionAdmission.Result.CLOSED ? closed : yielded).incrementAndGet();
+                            continue;
+                        }
+                        if (before == after && before % 2 == 0) closedAdmissions.incrementAndGet();
+                        if (concurrentInside.incrementAndGet() > capacity) overCapacity.incrementAndGet();
+                        Thread.onSpinWait();
+                        concurrentInside.decrementAndGet();
+                        admission.leave(vehicle);
+                        admitted.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "ContentionWorker-" + t);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+
+        Thread switcher = new Thread(() -> {
+            Random random = new Random(seed);
+            Vehicle.MovementType[] movements = Vehicle.MovementType.values();
+            boolean[] open = new boolean[lanes];
+            while (!stop.get()) {
+                for (int d = 0; d < DIRECTIONS.length; d++) {
+                    boolean[] next = new boolean[movements.length];
+                    if (random.nextInt(4) == 0) {
+                        // cierre parcial, como el despeje de una izquierda adelantada
+                        Set<Vehicle.MovementType> closing = EnumSet.noneOf(Vehicle.MovementType.class);
+                        for (Vehicle.MovementType mt : movements) {
+                            boolean wasOpen = open[d * movements.length + mt.ordinal()];
+                            if (wasOpen && random.nextBoolean()) closing.add(mt);
+                            else next[mt.ordinal()] = wasOpen;
+                        }
+                        admission.closeMovements(DIRECTIONS[d], closing, null);
+                    } else {
+                        Map<Vehicle.MovementType, Integer> permits = new EnumMap<>(Vehicle.MovementType.class);
+                        for (Vehicle.MovementType mt : movements) {
+                            if (random.nextInt(3) != 0) continue;
+                            next[mt.ordinal()] = true;
+                            permits.put(mt, 1 + random.nextInt(20));
+                            int lane = d * movements.length + mt.ordinal();
+                            if (!open[lane]) sequence.incrementAndGet(lane);
+                        }
+                        admission.setOpenMovements(DIRECTIONS[d], permits, null, null);
+                    }
+                    for (Vehicle.MovementType mt : movements) {
+                        int lane = d * movements.length + mt.ordinal();
+                        if (open[lane] && !next[mt.ordinal()]) sequence.incrementAndGet(lane);
+                        open[lane] = next[mt.ordinal()];
+                    }
+                    phaseChanges.incrementAndGet();
+                }
+                maxWaiting.accumulateAndGet(admission.getWaitingThreadCount(), Math::max);
+                LockSupport.parkNanos(random.nextInt(200_000));
+            }
+        }, "ContentionSwitcher");
+        switcher.setDaemon(true);
+
+        long realStart = System.nanoTime();
+        for (Thread worker : workers) worker.start();
+        switcher.start();
+        Thread.sleep(durationMs);
+        stop.set(true);
+        switcher.join();
+        for (Thread worker : workers) worker.interrupt();
+        for (Thread worker : workers) worker.join(5000);
+        double realSeconds = (System.nanoTime() - realStart) / 1e9;
+
+        long alive = workers.stream().filter(Thread::isAlive).count();
+        if (alive > 0) failures.add("contención: " + alive + " hilos no terminaron");
+        if (closedAdmissions.get() > 0) failures.add("contención: " + closedAdmissions.get() + " admisiones con el movimiento cerrado");
+        if (overCapacity.get() > 0 || admission.getMaxInside() > capacity) {
+            failures.add("contención: ocupación máxima " + admission.getMaxInside() + " > " + capacity);
+        }
+        if (admission.getInsideCount() != 0 || admission.getAvailableSlots() != capacity) {
+            failures.add("contención: " + admission.getAvailableSlots() + " cupos libres de " + capacity
+                    + " con " + admission.getInsideCount() + " vehículos dentro al terminar");
+        }
+        if (maxWaiting.get() < Math.min(threads, 1000) / 2) {
+            failures.add("contención: sólo " + maxWaiting.get() + " hilos llegaron a esperar en los semáforos");
+        }
+
+        System.out.println("Contención:");
+        System.out.printf("  %d hilos, máx. %d esperando a la vez en los semáforos, %d cambios de fase en %.1fs%n",
+                threads, maxWaiting.get(), phaseChanges.get(), realSeconds);
+        System.out.printf("  Admisiones: %d (%.0f/s), rechazadas por cierre: %d, cedieron el paso: %d, admisiones con el movimiento cerrado: %d%n",
+                admitted.get(), admitted.get() / realSeconds, closed.get(), yielded.get(), closedAdmissions.get());
+    }
+}